@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ConfigManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration lookups as made on scenario hot paths, read concurrently from four threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConfigBenchmark {
+    private final ConfigManager config = ConfigManager.getInstance();
+
+    @Benchmark
+    public String getProperty() {
+        return config.getProperty("app.url");
+    }
+
+    @Benchmark
+    public int getIntProperty() {
+        return config.getIntProperty("browser.page.load.timeout", 30);
+    }
+
+    @Benchmark
+    public String getAppUrl() {
+        return config.getAppUrl();
+    }
+
+    @Benchmark
+    public boolean isHeadless() {
+        return config.isHeadless();
+    }
+}
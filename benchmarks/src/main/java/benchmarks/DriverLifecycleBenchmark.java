@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+import utils.DriverManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting a usable browser: a full launch through {@link DriverManager#createDriver()}
+ * versus a pooled browser that is reset and handed back between scenarios.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Denv=embedded", "-Dheadless=true", "-Dbrowser.reuse=true", "-Dbrowser.recycle.after=0"})
+public class DriverLifecycleBenchmark {
+
+    @Benchmark
+    public void createDriverCold() {
+        WebDriver driver = DriverManager.createDriver();
+        driver.quit();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public WebDriver createDriverWarm(LocalApp app) {
+        WebDriver driver = DriverManager.getDriver();
+        driver.get(app.getUrl());
+        DriverManager.releaseDriver();
+        return driver;
+    }
+}
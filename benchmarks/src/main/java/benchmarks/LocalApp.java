@@ -0,0 +1,33 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import utils.ConfigManager;
+import utils.LocalAppServer;
+
+/**
+ * Runs the framework's embedded stand-in for the length of a trial so browser benchmarks
+ * do not depend on the network. Benchmarks using it fork with {@code -Denv=embedded}.
+ */
+@State(Scope.Benchmark)
+public class LocalApp {
+    private String url;
+
+    @Setup(Level.Trial)
+    public void start() {
+        LocalAppServer.startIfEnabled();
+        url = ConfigManager.getInstance().getAppUrl();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        LocalAppServer.stopShared();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+}
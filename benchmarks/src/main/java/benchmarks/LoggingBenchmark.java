@@ -0,0 +1,130 @@
+package benchmarks;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The cost to a scenario thread of one log line, shaped like the page objects' output, from
+ * four threads at once. Every variant writes to a single file, so {@code System.out.println}
+ * and logback with and without an async appender are compared against the same output:
+ * <ul>
+ *   <li>{@code println}: the old style, a PrintStream over the file set up like System.out</li>
+ *   <li>{@code sync}: a FileAppender with the pattern from logback.xml</li>
+ *   <li>{@code async}: the same appender behind an AsyncAppender configured as in logback.xml</li>
+ *   <li>{@code asyncNeverBlock}: as {@code async}, but dropping events while the queue is full</li>
+ *   <li>{@code disabled}: a debug line with the level at INFO</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final String PATTERN =
+        "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] [%X{scenario:-}] %-5level %logger{36} - %msg%n";
+
+    @Param({"println", "sync", "async", "asyncNeverBlock", "disabled"})
+    public String output;
+
+    private final AtomicInteger items = new AtomicInteger();
+    private Path file;
+    private PrintStream out;
+    private LoggerContext context;
+    private Logger log;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        file = Files.createTempFile("logging-benchmark", ".log");
+        if (output.equals("println")) {
+            // Built as System.out is, so each line is flushed like the appenders' immediateFlush
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 128), true);
+            return;
+        }
+        context = new LoggerContext();
+        context.setMDCAdapter(MDC.getMDCAdapter());
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.toString());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        Appender<ILoggingEvent> appender = fileAppender;
+        if (output.startsWith("async")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(0);
+            async.setIncludeCallerData(false);
+            async.setNeverBlock(output.equals("asyncNeverBlock"));
+            async.addAppender(fileAppender);
+            async.start();
+            appender = async;
+        }
+        log = context.getLogger("pages.InventoryPage");
+        log.setLevel(ch.qos.logback.classic.Level.INFO);
+        log.setAdditive(false);
+        log.addAppender(appender);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+        } else {
+            // Stopping an AsyncAppender waits for its queue to drain into the file
+            context.stop();
+        }
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void logLine() {
+        int item = items.incrementAndGet();
+        switch (output) {
+            case "println":
+                out.println("Added item sauce-labs-backpack-" + item + " to cart, badge now " + item % 6);
+                break;
+            case "disabled":
+                log.debug("Added item {} to cart, badge now {}", "sauce-labs-backpack-" + item, item % 6);
+                break;
+            default:
+                log.info("Added item {} to cart, badge now {}", "sauce-labs-backpack-" + item, item % 6);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import pages.InventoryPage;
+import pages.LoginPage;
+import utils.DriverManager;
+import utils.SessionCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page-object operations against the embedded stand-in in a headless browser. Each
+ * invocation starts from a freshly loaded page, so the numbers include the waits the page
+ * objects perform but not the navigation that sets them up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Denv=embedded", "-Dheadless=true"})
+public class PageObjectBenchmark {
+
+    @State(Scope.Thread)
+    public static class Browser {
+        WebDriver driver;
+        String url;
+
+        @Setup(Level.Trial)
+        public void launch(LocalApp app) {
+            url = app.getUrl();
+            driver = DriverManager.getDriver();
+            // The inventory is only served to a logged-in browser
+            SessionCache.loginAs(driver, "standard_user", "secret_sauce");
+        }
+
+        @TearDown(Level.Trial)
+        public void quit() {
+            DriverManager.quitDriver();
+        }
+
+        void openInventory(boolean withItemInCart) {
+            driver.get(url + "/inventory.html");
+            ((JavascriptExecutor) driver).executeScript(
+                "localStorage.setItem('cart-contents', arguments[0]);", withItemInCart ? "[4]" : "[]");
+            driver.navigate().refresh();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OnLoginPage {
+        LoginPage loginPage;
+
+        @Setup(Level.Invocation)
+        public void open(Browser browser) {
+            loginPage = new LoginPage(browser.driver);
+            loginPage.navigateToLoginPage(browser.url);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OnEmptyInventory {
+        InventoryPage inventoryPage;
+
+        @Setup(Level.Invocation)
+        public void open(Browser browser) {
+            browser.openInventory(false);
+            inventoryPage = new InventoryPage(browser.driver);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OnInventoryWithItem {
+        InventoryPage inventoryPage;
+
+        @Setup(Level.Trial)
+        public void open(Browser browser) {
+            browser.openInventory(true);
+            inventoryPage = new InventoryPage(browser.driver);
+        }
+    }
+
+    @Benchmark
+    public void login(OnLoginPage state) {
+        state.loginPage.login("standard_user", "secret_sauce");
+    }
+
+    @Benchmark
+    public void addItemToCart(OnEmptyInventory state) {
+        state.inventoryPage.addItemToCart(0);
+    }
+
+    @Benchmark
+    public int getCartItemCount(OnInventoryWithItem state) {
+        // Force a fresh read so every invocation pays the browser round trip
+        state.inventoryPage.invalidateSnapshot();
+        return state.inventoryPage.getCartItemCount();
+    }
+}
@@ -0,0 +1,144 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Resolved element cache for page objects.
+ *
+ * Elements are looked up once and reused until the browser reports them stale, at which
+ * point the locator is resolved again and the action retried once. The counters show how
+ * many lookups a page actually needed: every miss and re-resolve is one findElement call.
+ */
+public class ElementCache {
+    private final WebDriver driver;
+    private final Map<By, WebElement> elements = new ConcurrentHashMap<>();
+    private final Map<By, List<WebElement>> elementLists = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger reResolves = new AtomicInteger();
+
+    public ElementCache(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Returns the cached element for the locator, finding it on first use.
+     */
+    public WebElement find(By locator) {
+        WebElement element = elements.get(locator);
+        if (element != null) {
+            hits.incrementAndGet();
+            return element;
+        }
+        misses.incrementAndGet();
+        element = driver.findElement(locator);
+        elements.put(locator, element);
+        return element;
+    }
+
+    /**
+     * Returns the cached elements for the locator, finding them on first use. Empty
+     * results are not cached so a list that has not rendered yet is looked up again.
+     */
+    public List<WebElement> findAll(By locator) {
+        List<WebElement> found = elementLists.get(locator);
+        if (found != null) {
+            hits.incrementAndGet();
+            return found;
+        }
+        misses.incrementAndGet();
+        found = driver.findElements(locator);
+        if (!found.isEmpty()) {
+            elementLists.put(locator, found);
+        }
+        return found;
+    }
+
+    /**
+     * Applies the action to the element, re-resolving it once if it has gone stale.
+     */
+    public <T> T apply(By locator, Function<WebElement, T> action) {
+        try {
+            return action.apply(find(locator));
+        } catch (StaleElementReferenceException e) {
+            reResolves.incrementAndGet();
+            WebElement element = driver.findElement(locator);
+            elements.put(locator, element);
+            return action.apply(element);
+        }
+    }
+
+    public void run(By locator, Consumer<WebElement> action) {
+        apply(locator, element -> {
+            action.accept(element);
+            return null;
+        });
+    }
+
+    /**
+     * Applies the action to the index-th element of the list, re-resolving the whole list
+     * once if the element has gone stale.
+     */
+    public <T> T applyAt(By locator, int index, Function<WebElement, T> action) {
+        try {
+            return action.apply(findAll(locator).get(index));
+        } catch (StaleElementReferenceException e) {
+            reResolves.incrementAndGet();
+            List<WebElement> found = driver.findElements(locator);
+            elementLists.put(locator, found);
+            return action.apply(found.get(index));
+        }
+    }
+
+    public ExpectedCondition<WebElement> visible(By locator) {
+        return d -> apply(locator, element -> element.isDisplayed() ? element : null);
+    }
+
+    public ExpectedCondition<WebElement> clickable(By locator) {
+        return d -> apply(locator, element -> element.isDisplayed() && element.isEnabled() ? element : null);
+    }
+
+    public ExpectedCondition<WebElement> clickableAt(By locator, int index) {
+        return d -> applyAt(locator, index, element -> element.isDisplayed() && element.isEnabled() ? element : null);
+    }
+
+    /**
+     * Drops every cached element, e.g. after navigating to another document.
+     */
+    public void clear() {
+        elements.clear();
+        elementLists.clear();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getReResolves() {
+        return reResolves.get();
+    }
+
+    public int getFindCalls() {
+        return misses.get() + reResolves.get();
+    }
+
+    public String getStats() {
+        return "hits=" + getHits() + ", misses=" + getMisses() + ", reResolves=" + getReResolves()
+            + ", findElement calls=" + getFindCalls();
+    }
+}
@@ -1,124 +1,143 @@
 package pages;
 
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.FindBy;
-import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.CommandMetrics;
+import utils.ConditionWait;
+import utils.ConfigManager;
+import utils.TimedWait;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class InventoryPage {
-    private WebDriver driver;
-    private WebDriverWait wait;
-    
-    @FindBy(css = ".inventory_list .inventory_item")
-    private List<WebElement> inventoryItems;
-    
-    @FindBy(css = ".shopping_cart_link")
-    private WebElement shoppingCartLink;
-    
-    @FindBy(css = ".shopping_cart_badge")
-    private WebElement cartBadge;
-    
-    @FindBy(css = ".title")
-    private WebElement pageTitle;
-    
-    @FindBy(css = ".bm-burger-button")
-    private WebElement menuButton;
+    private static final Logger log = LoggerFactory.getLogger(InventoryPage.class);
     
-    @FindBy(id = "logout_sidebar_link")
-    private WebElement logoutLink;
+    private static final By INVENTORY_ITEMS = By.cssSelector(".inventory_list .inventory_item");
+    private static final By SHOPPING_CART_LINK = By.cssSelector(".shopping_cart_link");
+    private static final By PAGE_TITLE = By.cssSelector(".title");
+    private static final By MENU_BUTTON = By.cssSelector(".bm-burger-button");
+    private static final By LOGOUT_LINK = By.id("logout_sidebar_link");
+    private static final By ADD_TO_CART_BUTTONS = By.cssSelector(".btn_inventory");
+    private static final By FIRST_ITEM_BUTTON = By.cssSelector("button[data-test='add-to-cart-sauce-labs-backpack']");
     
-    @FindBy(css = ".inventory_item_name")
-    private List<WebElement> itemNames;
-    
-    @FindBy(css = ".inventory_item_price")
-    private List<WebElement> itemPrices;
-    
-    @FindBy(css = ".btn_inventory")
-    private List<WebElement> addToCartButtons;
-    
-    // Alternative selectors to try
-    @FindBy(css = "button[data-test='add-to-cart-sauce-labs-backpack']")
-    private WebElement firstItemButton;
+    // The application keeps the cart in local storage as a JSON array of product ids
+    private static final String CART_STORAGE_KEY = "cart-contents";
+    private static final Map<String, Integer> PRODUCT_IDS = new LinkedHashMap<>();
+    static {
+        PRODUCT_IDS.put("backpack", 4);
+        PRODUCT_IDS.put("bike light", 0);
+        PRODUCT_IDS.put("bolt t-shirt", 1);
+        PRODUCT_IDS.put("fleece jacket", 5);
+        PRODUCT_IDS.put("onesie", 2);
+        PRODUCT_IDS.put("red t-shirt", 3);
+    }
     
-    @FindBy(css = "button[data-test='add-to-cart-sauce-labs-bike-light']")
-    private WebElement secondItemButton;
+    private WebDriver driver;
+    private WebDriverWait wait;
+    private ConditionWait conditions;
+    private ElementCache elements;
+    private InventorySnapshot snapshot;
     
     public InventoryPage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-        PageFactory.initElements(driver, this);
-        
-        // Debug: Print page information
-        System.out.println("Current URL: " + driver.getCurrentUrl());
-        System.out.println("Page title: " + driver.getTitle());
-        System.out.println("Number of inventory buttons found: " + addToCartButtons.size());
-        
-        // Debug: Print button information
-        for (int i = 0; i < Math.min(addToCartButtons.size(), 3); i++) {
-            try {
-                WebElement button = addToCartButtons.get(i);
-                System.out.println("Button " + i + " text: '" + button.getText() + "', class: '" + button.getAttribute("class") + "'");
-            } catch (Exception e) {
-                System.out.println("Error getting button " + i + " info: " + e.getMessage());
+        this.wait = new TimedWait(driver, Duration.ofSeconds(10));
+        this.wait.ignoring(StaleElementReferenceException.class);
+        this.conditions = new ConditionWait(driver, Duration.ofSeconds(10));
+        this.elements = new ElementCache(driver);
+    }
+    
+    /**
+     * Returns the current inventory snapshot, capturing it if none is held. A snapshot is
+     * only kept once the inventory has rendered, and is dropped by every mutating action.
+     */
+    public InventorySnapshot getSnapshot() {
+        InventorySnapshot current = snapshot;
+        if (current == null) {
+            current = InventorySnapshot.capture(driver);
+            if (current.hasItems()) {
+                snapshot = current;
             }
         }
+        return current;
+    }
+    
+    public void invalidateSnapshot() {
+        snapshot = null;
+    }
+    
+    public ElementCache getElementCache() {
+        return elements;
     }
     
     public boolean isInventoryPageDisplayed() {
         try {
-            wait.until(ExpectedConditions.visibilityOf(pageTitle));
-            return pageTitle.getText().contains("Products");
+            return wait.until(elements.visible(PAGE_TITLE)).getText().contains("Products");
         } catch (Exception e) {
             return false;
         }
     }
     
     public int getNumberOfItems() {
-        wait.until(ExpectedConditions.visibilityOfAllElements(inventoryItems));
+        List<WebElement> inventoryItems = wait.until(d -> {
+            List<WebElement> found = elements.findAll(INVENTORY_ITEMS);
+            return !found.isEmpty() && found.get(0).isDisplayed() ? found : null;
+        });
         return inventoryItems.size();
     }
     
     public void clickShoppingCart() {
-        wait.until(ExpectedConditions.elementToBeClickable(shoppingCartLink));
-        shoppingCartLink.click();
+        wait.until(elements.clickable(SHOPPING_CART_LINK));
+        elements.run(SHOPPING_CART_LINK, WebElement::click);
+        invalidateSnapshot();
+        elements.clear();
         
         // Wait for navigation to complete
+        conditions.untilUrlContains("cart");
+    }
+    
+    /**
+     * Waits until the cart badge shows the expected count. Returns false if it did not
+     * get there in time so callers can report the actual count.
+     */
+    public boolean waitForCartItemCount(int expectedCount) {
+        invalidateSnapshot();
         try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            conditions.untilCount(".shopping_cart_badge", expectedCount);
+            return true;
+        } catch (TimeoutException e) {
+            log.warn("{}", e.getMessage());
+            return false;
         }
     }
     
     public int getCartItemCount() {
         try {
-            // First check if cart badge element exists in DOM
-            System.out.println("Checking for cart badge element...");
-            
-            // Wait for cart badge to be visible with a longer timeout
-            WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofSeconds(10));
-            shortWait.until(ExpectedConditions.visibilityOf(cartBadge));
-            String badgeText = cartBadge.getText().trim();
-            System.out.println("✅ Cart badge found and visible. Text: '" + badgeText + "'");
-            return Integer.parseInt(badgeText);
+            // An absent badge means an empty cart, which the snapshot reports as 0
+            int badgeCount = getSnapshot().getBadgeCount();
+            log.debug("Cart badge count from snapshot: {}", badgeCount);
+            return badgeCount;
         } catch (Exception e) {
             // Cart badge not visible means 0 items
-            System.out.println("❌ Cart badge not visible or error: " + e.getMessage());
+            log.warn("Cart badge not visible or error: {}", e.getMessage());
             
-            // Let's also check if the cart link itself is visible
-            try {
-                if (shoppingCartLink.isDisplayed()) {
-                    System.out.println("✅ Shopping cart link is visible");
-                } else {
-                    System.out.println("❌ Shopping cart link is not visible");
+            // Let's also check if the cart link itself is visible (costs a browser call, so only when debugging)
+            if (log.isDebugEnabled()) {
+                try {
+                    log.debug("Shopping cart link visible: {}", elements.apply(SHOPPING_CART_LINK, WebElement::isDisplayed));
+                } catch (Exception cartLinkException) {
+                    log.debug("Could not check shopping cart link: {}", cartLinkException.getMessage());
                 }
-            } catch (Exception cartLinkException) {
-                System.out.println("❌ Could not check shopping cart link: " + cartLinkException.getMessage());
             }
             
             return 0;
@@ -126,183 +145,188 @@ public class InventoryPage {
     }
     
     public void addItemToCart(int itemIndex) {
-        if (itemIndex >= 0 && itemIndex < addToCartButtons.size()) {
-            WebElement addButton = addToCartButtons.get(itemIndex);
-            
+        if (itemIndex >= 0 && itemIndex < elements.findAll(ADD_TO_CART_BUTTONS).size()) {
             // Wait for button to be clickable
-            wait.until(ExpectedConditions.elementToBeClickable(addButton));
+            WebElement addButton = wait.until(elements.clickableAt(ADD_TO_CART_BUTTONS, itemIndex));
             
             // Check if button is already "Remove" (item already in cart)
-            String buttonText = addButton.getText().trim();
-            System.out.println("Button text before click: '" + buttonText + "'");
+            String buttonText = elements.applyAt(ADD_TO_CART_BUTTONS, itemIndex, e -> e.getText().trim());
+            log.debug("Button text before click: '{}'", buttonText);
             
             if (buttonText.equals("Remove")) {
-                System.out.println("Item already in cart, skipping...");
+                log.info("Item {} already in cart, skipping", itemIndex);
                 return; // Item already in cart
             }
             
             // Try multiple click strategies
+            invalidateSnapshot();
             boolean clickSuccessful = false;
             
             // Strategy 1: Regular click
             try {
-                System.out.println("Attempting regular click...");
-                addButton.click();
+                log.debug("Attempting regular click");
+                elements.applyAt(ADD_TO_CART_BUTTONS, itemIndex, e -> {
+                    e.click();
+                    return true;
+                });
                 clickSuccessful = true;
-                System.out.println("Regular click successful");
+                log.debug("Regular click successful");
             } catch (Exception e) {
-                System.out.println("Regular click failed: " + e.getMessage());
+                log.warn("Regular click failed: {}", e.getMessage());
             }
             
             // Strategy 2: JavaScript click if regular click failed
             if (!clickSuccessful) {
                 try {
-                    System.out.println("Attempting JavaScript click...");
+                    log.debug("Attempting JavaScript click");
                     ((org.openqa.selenium.JavascriptExecutor) driver).executeScript("arguments[0].click();", addButton);
                     clickSuccessful = true;
-                    System.out.println("JavaScript click successful");
+                    log.debug("JavaScript click successful");
                 } catch (Exception e) {
-                    System.out.println("JavaScript click failed: " + e.getMessage());
+                    log.warn("JavaScript click failed: {}", e.getMessage());
                 }
             }
             
             // Strategy 3: Actions click if both failed
             if (!clickSuccessful) {
                 try {
-                    System.out.println("Attempting Actions click...");
+                    log.debug("Attempting Actions click");
                     org.openqa.selenium.interactions.Actions actions = new org.openqa.selenium.interactions.Actions(driver);
                     actions.moveToElement(addButton).click().perform();
                     clickSuccessful = true;
-                    System.out.println("Actions click successful");
+                    log.debug("Actions click successful");
                 } catch (Exception e) {
-                    System.out.println("Actions click failed: " + e.getMessage());
+                    log.warn("Actions click failed: {}", e.getMessage());
                 }
             }
             
             if (!clickSuccessful) {
-                System.out.println("❌ All click strategies failed!");
+                log.error("All click strategies failed for item {}", itemIndex);
                 return;
             }
             
-            System.out.println("Button clicked, waiting for update...");
+            log.debug("Button clicked, waiting for update");
             
-            // Wait for cart to update with multiple checks
-            for (int i = 0; i < 5; i++) {
-                try {
-                    Thread.sleep(1000);
-                    
-                    // Refresh elements and check button text
-                    PageFactory.initElements(driver, this);
-                    if (itemIndex < addToCartButtons.size()) {
-                        String newButtonText = addToCartButtons.get(itemIndex).getText().trim();
-                        System.out.println("Check " + (i+1) + ": Button text = '" + newButtonText + "'");
-                        
-                        if (newButtonText.equals("Remove")) {
-                            System.out.println("✅ Item successfully added to cart (button changed to Remove)");
-                            break;
-                        }
-                    }
-                } catch (Exception e) {
-                    System.out.println("Error during check " + (i+1) + ": " + e.getMessage());
-                }
+            // Wait for the button to flip to "Remove"
+            try {
+                conditions.untilText(".btn_inventory", itemIndex, "Remove");
+                log.info("Item {} added to cart", itemIndex);
+            } catch (TimeoutException e) {
+                log.warn("{}", e.getMessage());
             }
-            
-            System.out.println("Add to cart operation completed.");
         }
     }
     
     // New method specifically for the first item using data-test attribute
     public void addFirstItemToCart() {
         try {
-            System.out.println("Attempting to add first item using data-test selector...");
+            log.debug("Attempting to add first item using data-test selector");
             
             // Try the specific data-test selector first
-            if (firstItemButton != null) {
-                wait.until(ExpectedConditions.elementToBeClickable(firstItemButton));
-                String buttonText = firstItemButton.getText().trim();
-                System.out.println("First item button text: '" + buttonText + "'");
+            if (!elements.findAll(FIRST_ITEM_BUTTON).isEmpty()) {
+                wait.until(elements.clickable(FIRST_ITEM_BUTTON));
+                String buttonText = elements.apply(FIRST_ITEM_BUTTON, e -> e.getText().trim());
+                log.debug("First item button text: '{}'", buttonText);
                 
                 if (buttonText.equals("Remove")) {
-                    System.out.println("First item already in cart, skipping...");
+                    log.info("First item already in cart, skipping");
                     return;
                 }
                 
-                firstItemButton.click();
-                System.out.println("First item button clicked successfully");
+                elements.run(FIRST_ITEM_BUTTON, WebElement::click);
+                invalidateSnapshot();
+                log.debug("First item button clicked");
                 
-                // Wait and check for button text change
-                for (int i = 0; i < 5; i++) {
-                    Thread.sleep(1000);
-                    PageFactory.initElements(driver, this);
-                    String newButtonText = firstItemButton.getText().trim();
-                    System.out.println("Check " + (i+1) + ": First item button text = '" + newButtonText + "'");
-                    
-                    if (newButtonText.equals("Remove")) {
-                        System.out.println("✅ First item successfully added to cart");
-                        return;
-                    }
-                }
+                // The button is re-rendered as the backpack's "Remove" button once added
+                conditions.untilText("button[data-test='remove-sauce-labs-backpack']", "Remove");
+                log.info("First item added to cart");
+                return;
             }
             
             // Fallback to the original method
-            System.out.println("Falling back to original method...");
+            log.debug("Falling back to index-based add");
             addItemToCart(0);
             
         } catch (Exception e) {
-            System.out.println("Error in addFirstItemToCart: " + e.getMessage());
+            log.warn("Error in addFirstItemToCart, falling back: {}", e.getMessage());
             // Fallback to the original method
             addItemToCart(0);
         }
     }
     
-    public String getItemName(int itemIndex) {
-        if (itemIndex >= 0 && itemIndex < itemNames.size()) {
-            return itemNames.get(itemIndex).getText();
+    /**
+     * Sets the cart to exactly the given products by writing the application's stored cart
+     * and reloading once, without going through the add-to-cart buttons. Products are named
+     * as in {@code "backpack"} or {@code "the bike light"}.
+     */
+    public void seedCart(List<String> products) {
+        List<Integer> ids = products.stream().map(InventoryPage::productId).collect(Collectors.toList());
+        long start = System.nanoTime();
+        String appUrl = ConfigManager.getInstance().getAppUrl();
+        if (!driver.getCurrentUrl().startsWith(appUrl)) {
+            // Storage can only be written for the origin currently loaded
+            driver.get(appUrl);
         }
-        return "";
+        ((JavascriptExecutor) driver).executeScript("localStorage.setItem(arguments[0], arguments[1]);",
+            CART_STORAGE_KEY, ids.toString());
+        driver.navigate().refresh();
+        invalidateSnapshot();
+        elements.clear();
+        CommandMetrics.recordPhase("cart.seed", System.nanoTime() - start);
+        log.info("Cart seeded with {}", products);
     }
     
-    public String getItemPrice(int itemIndex) {
-        if (itemIndex >= 0 && itemIndex < itemPrices.size()) {
-            return itemPrices.get(itemIndex).getText();
+    private static int productId(String product) {
+        String name = product.trim().toLowerCase().replaceFirst("^the\\s+", "").replaceFirst("^sauce labs\\s+", "");
+        Integer id = PRODUCT_IDS.get(name);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown product '" + product + "', expected one of " + PRODUCT_IDS.keySet());
         }
-        return "";
+        return id;
+    }
+    
+    public String getItemName(int itemIndex) {
+        InventorySnapshot.Item item = getSnapshot().getItem(itemIndex);
+        return item != null ? item.getName() : "";
+    }
+    
+    public String getItemPrice(int itemIndex) {
+        InventorySnapshot.Item item = getSnapshot().getItem(itemIndex);
+        return item != null ? item.getPrice() : "";
     }
     
     public void openMenu() {
-        wait.until(ExpectedConditions.elementToBeClickable(menuButton));
-        menuButton.click();
+        wait.until(elements.clickable(MENU_BUTTON));
+        elements.run(MENU_BUTTON, WebElement::click);
     }
     
     public void logout() {
         openMenu();
-        
-        // Wait for menu to fully open and logout link to be visible
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        invalidateSnapshot();
         
         // Try to find and click logout link with different approaches
         try {
-            wait.until(ExpectedConditions.elementToBeClickable(logoutLink));
-            logoutLink.click();
+            // Wait for the menu to finish sliding in so the link is fully on screen
+            conditions.untilVisible("#logout_sidebar_link");
+            elements.run(LOGOUT_LINK, WebElement::click);
         } catch (Exception e) {
             // If the above fails, try JavaScript click
             try {
-                ((org.openqa.selenium.JavascriptExecutor) driver).executeScript("arguments[0].click();", logoutLink);
+                ((org.openqa.selenium.JavascriptExecutor) driver).executeScript("arguments[0].click();", elements.find(LOGOUT_LINK));
             } catch (Exception jsException) {
                 // If JavaScript also fails, try direct navigation to logout
-                driver.get("https://www.saucedemo.com/");
+                driver.get(ConfigManager.getInstance().getAppUrl());
             }
         }
+        
+        elements.clear();
+        conditions.untilVisible("#login-button");
     }
     
     public String getPageTitle() {
         try {
-            wait.until(ExpectedConditions.visibilityOf(pageTitle));
-            return pageTitle.getText();
+            wait.until(elements.visible(PAGE_TITLE));
+            return elements.apply(PAGE_TITLE, WebElement::getText);
         } catch (Exception e) {
             return driver.getTitle(); // fallback to browser title
         }
@@ -314,7 +338,7 @@ public class InventoryPage {
     
     public boolean isLoggedIn() {
         try {
-            return isInventoryPageDisplayed() && shoppingCartLink.isDisplayed();
+            return isInventoryPageDisplayed() && elements.apply(SHOPPING_CART_LINK, WebElement::isDisplayed);
         } catch (Exception e) {
             return false;
         }
@@ -322,32 +346,13 @@ public class InventoryPage {
     
     public int getCartItemCountAlternative() {
         try {
-            // Refresh page elements to avoid stale references
-            PageFactory.initElements(driver, this);
-            
-            System.out.println("Checking " + addToCartButtons.size() + " inventory buttons for 'Remove' text...");
-            
             // Count items with "Remove" button text
-            int count = 0;
-            for (int i = 0; i < addToCartButtons.size(); i++) {
-                try {
-                    WebElement button = addToCartButtons.get(i);
-                    String buttonText = button.getText().trim();
-                    System.out.println("Button " + i + " text: '" + buttonText + "'");
-                    if (buttonText.equals("Remove")) {
-                        count++;
-                        System.out.println("✅ Found 'Remove' button at index " + i);
-                    }
-                } catch (Exception e) {
-                    System.out.println("❌ Error checking button " + i + ": " + e.getMessage());
-                    // Skip stale elements
-                    continue;
-                }
-            }
-            System.out.println("Alternative cart count (Remove buttons): " + count);
+            InventorySnapshot current = getSnapshot();
+            int count = current.getRemoveButtonCount();
+            log.debug("Alternative cart count (Remove buttons among {}): {}", current.getItems().size(), count);
             return count;
         } catch (Exception e) {
-            System.out.println("Error in alternative cart count: " + e.getMessage());
+            log.warn("Error in alternative cart count: {}", e.getMessage());
             return 0;
         }
     }
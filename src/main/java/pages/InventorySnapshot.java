@@ -0,0 +1,148 @@
+package pages;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the inventory page read with a single script execution.
+ */
+public class InventorySnapshot {
+    private static final String CAPTURE_SCRIPT =
+        "var items = [];" +
+        "document.querySelectorAll('.inventory_list .inventory_item').forEach(function(item) {" +
+        "  var name = item.querySelector('.inventory_item_name');" +
+        "  var price = item.querySelector('.inventory_item_price');" +
+        "  var button = item.querySelector('.btn_inventory');" +
+        "  items.push({" +
+        "    name: name ? name.textContent.trim() : ''," +
+        "    price: price ? price.textContent.trim() : ''," +
+        "    buttonText: button ? button.textContent.trim() : ''," +
+        "    buttonTest: button ? (button.getAttribute('data-test') || '') : ''" +
+        "  });" +
+        "});" +
+        "var badge = document.querySelector('.shopping_cart_badge');" +
+        "var title = document.querySelector('.title');" +
+        "return {" +
+        "  url: location.href," +
+        "  documentTitle: document.title," +
+        "  title: title ? title.textContent.trim() : ''," +
+        "  badgeCount: badge ? (parseInt(badge.textContent.trim(), 10) || 0) : 0," +
+        "  items: items" +
+        "};";
+
+    private final String url;
+    private final String documentTitle;
+    private final String title;
+    private final int badgeCount;
+    private final List<Item> items;
+
+    private InventorySnapshot(String url, String documentTitle, String title, int badgeCount, List<Item> items) {
+        this.url = url;
+        this.documentTitle = documentTitle;
+        this.title = title;
+        this.badgeCount = badgeCount;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public static InventorySnapshot capture(WebDriver driver) {
+        Map<?, ?> result = (Map<?, ?>) ((JavascriptExecutor) driver).executeScript(CAPTURE_SCRIPT);
+        List<Item> items = new ArrayList<>();
+        for (Object entry : (List<?>) result.get("items")) {
+            Map<?, ?> item = (Map<?, ?>) entry;
+            items.add(new Item(
+                String.valueOf(item.get("name")),
+                String.valueOf(item.get("price")),
+                String.valueOf(item.get("buttonText")),
+                String.valueOf(item.get("buttonTest"))));
+        }
+        return new InventorySnapshot(
+            String.valueOf(result.get("url")),
+            String.valueOf(result.get("documentTitle")),
+            String.valueOf(result.get("title")),
+            ((Number) result.get("badgeCount")).intValue(),
+            items);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getDocumentTitle() {
+        return documentTitle;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getBadgeCount() {
+        return badgeCount;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public boolean hasItems() {
+        return !items.isEmpty();
+    }
+
+    /**
+     * Returns the item at the given index, or null if there is none.
+     */
+    public Item getItem(int index) {
+        return index >= 0 && index < items.size() ? items.get(index) : null;
+    }
+
+    /**
+     * Counts the items whose button reads "Remove", i.e. the items in the cart.
+     */
+    public int getRemoveButtonCount() {
+        int count = 0;
+        for (Item item : items) {
+            if (item.isInCart()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static final class Item {
+        private final String name;
+        private final String price;
+        private final String buttonText;
+        private final String buttonDataTest;
+
+        private Item(String name, String price, String buttonText, String buttonDataTest) {
+            this.name = name;
+            this.price = price;
+            this.buttonText = buttonText;
+            this.buttonDataTest = buttonDataTest;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPrice() {
+            return price;
+        }
+
+        public String getButtonText() {
+            return buttonText;
+        }
+
+        public String getButtonDataTest() {
+            return buttonDataTest;
+        }
+
+        public boolean isInCart() {
+            return "Remove".equals(buttonText);
+        }
+    }
+}
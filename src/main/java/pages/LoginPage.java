@@ -1,60 +1,61 @@
 package pages;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.FindBy;
-import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import utils.TimedWait;
 
 import java.time.Duration;
 
 public class LoginPage {
+    private static final By USERNAME_FIELD = By.id("user-name");
+    private static final By PASSWORD_FIELD = By.id("password");
+    private static final By LOGIN_BUTTON = By.id("login-button");
+    private static final By ERROR_MESSAGE = By.cssSelector(".error-message-container");
+    private static final By LOGIN_LOGO = By.cssSelector(".login_logo");
+    
     private WebDriver driver;
     private WebDriverWait wait;
-    
-    @FindBy(id = "user-name")
-    private WebElement usernameField;
-    
-    @FindBy(id = "password")
-    private WebElement passwordField;
-    
-    @FindBy(id = "login-button")
-    private WebElement loginButton;
-    
-    @FindBy(css = ".error-message-container")
-    private WebElement errorMessage;
-    
-    @FindBy(css = ".login_logo")
-    private WebElement loginLogo;
+    private ElementCache elements;
     
     public LoginPage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-        PageFactory.initElements(driver, this);
+        this.wait = new TimedWait(driver, Duration.ofSeconds(10));
+        this.wait.ignoring(StaleElementReferenceException.class);
+        this.elements = new ElementCache(driver);
+    }
+    
+    public ElementCache getElementCache() {
+        return elements;
     }
     
     public void navigateToLoginPage(String url) {
         driver.get(url);
-        wait.until(ExpectedConditions.visibilityOf(loginLogo));
+        elements.clear();
+        wait.until(elements.visible(LOGIN_LOGO));
     }
     
     public void enterUsername(String username) {
-        wait.until(ExpectedConditions.elementToBeClickable(usernameField));
-        usernameField.clear();
-        usernameField.sendKeys(username);
+        wait.until(elements.clickable(USERNAME_FIELD));
+        elements.run(USERNAME_FIELD, field -> {
+            field.clear();
+            field.sendKeys(username);
+        });
     }
     
     public void enterPassword(String password) {
-        wait.until(ExpectedConditions.elementToBeClickable(passwordField));
-        passwordField.clear();
-        passwordField.sendKeys(password);
+        wait.until(elements.clickable(PASSWORD_FIELD));
+        elements.run(PASSWORD_FIELD, field -> {
+            field.clear();
+            field.sendKeys(password);
+        });
     }
     
     public void clickLoginButton() {
-        wait.until(ExpectedConditions.elementToBeClickable(loginButton));
-        loginButton.click();
+        wait.until(elements.clickable(LOGIN_BUTTON));
+        elements.run(LOGIN_BUTTON, WebElement::click);
     }
     
     public void login(String username, String password) {
@@ -65,7 +66,8 @@ public class LoginPage {
     
     public boolean isLoginPageDisplayed() {
         try {
-            return loginLogo.isDisplayed() && loginButton.isDisplayed();
+            return elements.apply(LOGIN_LOGO, WebElement::isDisplayed)
+                && elements.apply(LOGIN_BUTTON, WebElement::isDisplayed);
         } catch (Exception e) {
             return false;
         }
@@ -73,7 +75,7 @@ public class LoginPage {
     
     public boolean isErrorMessageDisplayed() {
         try {
-            return errorMessage.isDisplayed();
+            return elements.apply(ERROR_MESSAGE, WebElement::isDisplayed);
         } catch (Exception e) {
             return false;
         }
@@ -81,14 +83,14 @@ public class LoginPage {
     
     public String getErrorMessage() {
         if (isErrorMessageDisplayed()) {
-            return errorMessage.getText();
+            return elements.apply(ERROR_MESSAGE, WebElement::getText);
         }
         return "";
     }
     
     public boolean isUsernameFieldDisplayed() {
         try {
-            return usernameField.isDisplayed();
+            return elements.apply(USERNAME_FIELD, WebElement::isDisplayed);
         } catch (Exception e) {
             return false;
         }
@@ -96,7 +98,7 @@ public class LoginPage {
     
     public boolean isPasswordFieldDisplayed() {
         try {
-            return passwordField.isDisplayed();
+            return elements.apply(PASSWORD_FIELD, WebElement::isDisplayed);
         } catch (Exception e) {
             return false;
         }
@@ -0,0 +1,80 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide latency histograms for WebDriver commands, Cucumber steps and framework
+ * phases such as browser launch and condition waits.
+ */
+public final class CommandMetrics {
+    private static final Logger log = LoggerFactory.getLogger(CommandMetrics.class);
+
+    private static final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> steps = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> phases = new ConcurrentHashMap<>();
+
+    private CommandMetrics() {
+    }
+
+    public static void recordCommand(String name, long nanos) {
+        commands.computeIfAbsent(name, key -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    public static void recordStep(String text, long nanos) {
+        steps.computeIfAbsent(text, key -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    public static void recordPhase(String name, long nanos) {
+        phases.computeIfAbsent(name, key -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    public static Map<String, LatencyHistogram> getCommands() {
+        return commands;
+    }
+
+    public static Map<String, LatencyHistogram> getSteps() {
+        return steps;
+    }
+
+    public static Map<String, LatencyHistogram> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Writes every histogram as JSON, sorted by name.
+     */
+    public static void writeReport(Path file) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", Instant.now().toString());
+        report.put("phases", summarize(phases));
+        report.put("commands", summarize(commands));
+        report.put("steps", summarize(steps));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+            log.info("Latency report written to {}", file);
+        } catch (IOException e) {
+            log.error("Could not write latency report to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> summarize(Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> summary = new TreeMap<>();
+        histograms.forEach((name, histogram) -> summary.put(name, histogram.toMap()));
+        return summary;
+    }
+}
@@ -0,0 +1,253 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Adjusts how many scenarios hold a browser at once to what the machine can take.
+ *
+ * The thread count is the most scenarios that may run at once; the controller lowers that to
+ * the available cores and to the number of browsers that fit in free memory, judged by the
+ * resident memory of the browsers already running. It samples the machine again at most once
+ * per interval. A thread that would start a browser beyond the current concurrency waits until
+ * another one finishes. Every change of the concurrency is logged with what bounded it, and
+ * time spent waiting is recorded as the {@code concurrency.wait} phase.
+ */
+public class ConcurrencyController {
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyController.class);
+    private static final long MIB = 1024 * 1024;
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final Path CGROUP_MAX = Paths.get("/sys/fs/cgroup/memory.max");
+    private static final Path CGROUP_CURRENT = Paths.get("/sys/fs/cgroup/memory.current");
+
+    private final DriverPool pool;
+    private final double browsersPerCore;
+    private final long reserveBytes;
+    private final long defaultBrowserBytes;
+    private final long intervalNanos;
+    private final Duration admitTimeout;
+    private final Object lock = new Object();
+    private int admitting;
+    private int limit;
+    private long sampledAt;
+
+    public ConcurrencyController(DriverPool pool, double browsersPerCore, long reserveMb, long browserMb,
+                                 Duration interval, Duration admitTimeout) {
+        this.pool = pool;
+        this.browsersPerCore = browsersPerCore;
+        this.reserveBytes = reserveMb * MIB;
+        this.defaultBrowserBytes = Math.max(1, browserMb) * MIB;
+        this.intervalNanos = interval.toNanos();
+        this.admitTimeout = admitTimeout;
+    }
+
+    /**
+     * Checks out a driver once the calling thread may start another scenario, waiting while
+     * as many scenarios as the current concurrency hold one. Throws when none finishes within
+     * the admit timeout.
+     */
+    public WebDriver admit(Supplier<WebDriver> checkout) {
+        long start = System.nanoTime();
+        long deadline = start + admitTimeout.toNanos();
+        synchronized (lock) {
+            boolean waited = false;
+            while (pool.getActiveCount() + admitting >= currentLimit()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Timed out after " + admitTimeout.getSeconds()
+                        + "s waiting for capacity to start a browser (concurrency " + limit
+                        + ", running " + pool.getActiveCount() + ")");
+                }
+                if (!waited) {
+                    log.debug("Holding back a browser: {} running at concurrency {}", pool.getActiveCount(), limit);
+                    waited = true;
+                }
+                // Leases are returned to the pool, not here, so waiting threads poll
+                waitOn(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(250)));
+            }
+            admitting++;
+            if (waited) {
+                CommandMetrics.recordPhase("concurrency.wait", System.nanoTime() - start);
+            }
+        }
+        try {
+            return checkout.get();
+        } finally {
+            synchronized (lock) {
+                admitting--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns the current concurrency, sampling the machine first if the interval has passed.
+     */
+    public int getLimit() {
+        synchronized (lock) {
+            return currentLimit();
+        }
+    }
+
+    private int currentLimit() {
+        long now = System.nanoTime();
+        if (limit > 0 && now - sampledAt < intervalNanos) {
+            return limit;
+        }
+        sampledAt = now;
+        Decision decision = decide(sample(), pool.getMaxSize(), browsersPerCore, reserveBytes, defaultBrowserBytes);
+        if (limit == 0) {
+            log.info("Running up to {} of {} scenarios at once, bound by {}", decision.limit, pool.getMaxSize(), decision.reason);
+        } else if (decision.limit != limit) {
+            log.info("Concurrency {} -> {}, bound by {}", limit, decision.limit, decision.reason);
+        }
+        limit = decision.limit;
+        return limit;
+    }
+
+    private void waitOn(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.timedWait(lock, nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for capacity to start a browser", e);
+        }
+    }
+
+    /**
+     * Picks the concurrency for a sample: the lowest of the maximum, the cores times the
+     * browsers per core, and the running browsers plus as many more as fit in the available
+     * memory above the reserve. While the load average exceeds the cores it does not grow
+     * past the scenarios already running.
+     */
+    static Decision decide(Sample sample, int max, double browsersPerCore, long reserveBytes, long defaultBrowserBytes) {
+        int limit = max;
+        String reason = "threads (" + max + ")";
+
+        int byCores = Math.max(1, (int) Math.floor(sample.cores * browsersPerCore));
+        if (byCores < limit) {
+            limit = byCores;
+            reason = "cores (" + sample.cores + " cores, " + browsersPerCore + " browsers per core)";
+        }
+
+        if (sample.availableBytes >= 0) {
+            boolean measured = sample.browsers > 0 && sample.browserBytes > 0;
+            long perBrowser = measured ? Math.max(1, sample.browserBytes / sample.browsers) : defaultBrowserBytes;
+            long headroom = sample.availableBytes - reserveBytes;
+            long fitting = headroom >= 0 ? headroom / perBrowser : -((-headroom + perBrowser - 1) / perBrowser);
+            int byMemory = (int) Math.max(1, Math.min(Integer.MAX_VALUE, sample.browsers + fitting));
+            if (byMemory < limit) {
+                limit = byMemory;
+                reason = "memory (" + sample.availableBytes / MIB + " MiB available, " + reserveBytes / MIB
+                    + " MiB reserved, " + (measured ? "" : "assumed ") + perBrowser / MIB + " MiB per browser)";
+            }
+        }
+
+        if (sample.load > sample.cores && Math.max(1, sample.active) < limit) {
+            limit = Math.max(1, sample.active);
+            reason = String.format("load (%.1f on %d cores)", sample.load, sample.cores);
+        }
+        return new Decision(limit, reason);
+    }
+
+    private Sample sample() {
+        int browsers = pool.getActiveCount() + pool.getIdleCount() + pool.getLaunchingCount();
+        return new Sample(Runtime.getRuntime().availableProcessors(),
+            ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage(),
+            availableMemory(), browserMemory(), browsers, pool.getActiveCount());
+    }
+
+    // MemAvailable counts what can be reclaimed from caches; a cgroup limit applies on top of it.
+    // Where neither can be read the memory bound is left out.
+    private static long availableMemory() {
+        long available = meminfo("MemAvailable:");
+        try {
+            String max = Files.readString(CGROUP_MAX).trim();
+            if (!max.equals("max")) {
+                long inCgroup = Long.parseLong(max) - Long.parseLong(Files.readString(CGROUP_CURRENT).trim());
+                available = available < 0 ? inCgroup : Math.min(available, inCgroup);
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not in a cgroup v2 container
+        }
+        return available;
+    }
+
+    private static long meminfo(String field) {
+        try {
+            for (String line : Files.readAllLines(MEMINFO)) {
+                if (line.startsWith(field)) {
+                    return kilobytes(line.substring(field.length())) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Could not read {}: {}", MEMINFO, e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Sums the resident memory of this JVM's child processes: the drivers and the browsers
+     * they started. Returns 0 where it cannot be read, such as on machines without /proc.
+     */
+    private static long browserMemory() {
+        return ProcessHandle.current().descendants().mapToLong(process -> residentMemory(process.pid())).sum();
+    }
+
+    private static long residentMemory(long pid) {
+        try {
+            List<String> status = Files.readAllLines(Paths.get("/proc", String.valueOf(pid), "status"));
+            for (String line : status) {
+                if (line.startsWith("VmRSS:")) {
+                    return kilobytes(line.substring("VmRSS:".length())) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // The process has exited, or there is no /proc
+        }
+        return 0;
+    }
+
+    private static long kilobytes(String value) {
+        return Long.parseLong(value.replace("kB", "").trim());
+    }
+
+    static final class Sample {
+        private final int cores;
+        private final double load;
+        private final long availableBytes;
+        private final long browserBytes;
+        private final int browsers;
+        private final int active;
+
+        Sample(int cores, double load, long availableBytes, long browserBytes, int browsers, int active) {
+            this.cores = cores;
+            this.load = load;
+            this.availableBytes = availableBytes;
+            this.browserBytes = browserBytes;
+            this.browsers = browsers;
+            this.active = active;
+        }
+    }
+
+    static final class Decision {
+        final int limit;
+        final String reason;
+
+        private Decision(int limit, String reason) {
+            this.limit = limit;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package utils;
+
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Waits for page conditions inside the browser instead of polling from the test.
+ *
+ * Each wait installs a MutationObserver plus URL-change listeners in the page through a
+ * single asynchronous script, which resolves as soon as the condition holds. A wait that
+ * spans a full page load is resumed on the new document with the remaining time. Any other
+ * WebDriver error, such as a lost session, ends the wait straight away.
+ */
+public class ConditionWait {
+    // How Chrome and Firefox report a script whose document went away under it
+    private static final Pattern DOCUMENT_REPLACED = Pattern.compile(
+        "unloaded|execution context|cannot find context|navigat", Pattern.CASE_INSENSITIVE);
+    private static final String WAIT_SCRIPT =
+        "var args = arguments[0], timeout = arguments[1], done = arguments[arguments.length - 1];" +
+        "var start = Date.now(), finished = false, lastUrl = location.href, observer, timer;" +
+        "function holds() { try { return !!predicate(args); } catch (e) { return false; } }" +
+        "function observed() { try { return String(diagnostic(args)); } catch (e) { return 'error: ' + e.message; } }" +
+        "function finish(ok) {" +
+        "  if (finished) { return; } finished = true;" +
+        "  if (observer) { observer.disconnect(); } clearInterval(timer);" +
+        "  window.removeEventListener('popstate', check); window.removeEventListener('hashchange', check);" +
+        "  done({ok: ok, elapsed: Date.now() - start, url: location.href, observed: observed()});" +
+        "}" +
+        "function check() { if (holds()) { finish(true); } }" +
+        "if (holds()) { finish(true); return; }" +
+        "observer = new MutationObserver(check);" +
+        "observer.observe(document, {childList: true, subtree: true, attributes: true, characterData: true});" +
+        "window.addEventListener('popstate', check); window.addEventListener('hashchange', check);" +
+        "timer = setInterval(function() {" +
+        "  if (location.href !== lastUrl) { lastUrl = location.href; check(); }" +
+        "  if (!finished && Date.now() - start >= timeout) { finish(holds()); }" +
+        "}, 50);";
+
+    private final WebDriver driver;
+    private final Duration timeout;
+
+    public ConditionWait(WebDriver driver, Duration timeout) {
+        this.driver = driver;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Waits until the element matched by the selector has the given trimmed text.
+     */
+    public void untilText(String cssSelector, String text) {
+        until("text of '" + cssSelector + "' to be '" + text + "'",
+            "var e = document.querySelector(args[0]); return e !== null && e.textContent.trim() === args[1];",
+            "var e = document.querySelector(args[0]); return e === null ? '<missing>' : e.textContent.trim();",
+            cssSelector, text);
+    }
+
+    /**
+     * Waits until the index-th element matched by the selector has the given trimmed text.
+     */
+    public void untilText(String cssSelector, int index, String text) {
+        until("text of '" + cssSelector + "'[" + index + "] to be '" + text + "'",
+            "var e = document.querySelectorAll(args[0])[args[1]]; return e !== undefined && e.textContent.trim() === args[2];",
+            "var e = document.querySelectorAll(args[0])[args[1]]; return e === undefined ? '<missing>' : e.textContent.trim();",
+            cssSelector, index, text);
+    }
+
+    /**
+     * Waits until an element matching the selector exists and is rendered.
+     */
+    public void untilVisible(String cssSelector) {
+        until("'" + cssSelector + "' to be visible",
+            "var e = document.querySelector(args[0]); if (e === null) { return false; }" +
+                " var r = e.getBoundingClientRect(); return e.offsetParent !== null && r.width > 0 && r.height > 0 && r.left >= 0;",
+            "var e = document.querySelector(args[0]); return e === null ? '<missing>' : JSON.stringify(e.getBoundingClientRect());",
+            cssSelector);
+    }
+
+    /**
+     * Waits until the cart badge shows the given count; zero means the badge is gone.
+     */
+    public void untilCount(String badgeSelector, int count) {
+        until("'" + badgeSelector + "' to show " + count,
+            "var e = document.querySelector(args[0]); var n = e === null ? 0 : parseInt(e.textContent.trim(), 10) || 0; return n === args[1];",
+            "var e = document.querySelector(args[0]); return e === null ? '<missing>' : e.textContent.trim();",
+            badgeSelector, count);
+    }
+
+    /**
+     * Waits until the current URL contains the given fragment.
+     */
+    public void untilUrlContains(String fragment) {
+        until("URL to contain '" + fragment + "'",
+            "return location.href.indexOf(args[0]) !== -1;",
+            "return location.href;",
+            fragment);
+    }
+
+    /**
+     * Waits until the JavaScript predicate body returns a truthy value. Both bodies see
+     * the extra arguments as the array {@code args}; the diagnostic body describes the
+     * observed state and is reported if the wait times out.
+     */
+    public void until(String description, String predicateBody, String diagnosticBody, Object... args) {
+        String script = "var predicate = function(args) { " + predicateBody + " };"
+            + "var diagnostic = function(args) { " + diagnosticBody + " };"
+            + WAIT_SCRIPT;
+
+        long started = System.nanoTime();
+        try {
+            awaitCondition(description, script, args);
+        } finally {
+            CommandMetrics.recordPhase("wait.condition", System.nanoTime() - started);
+        }
+    }
+
+    private void awaitCondition(String description, String script, Object[] args) {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        String lastObserved = "<none>";
+        String lastUrl = "<unknown>";
+        int documents = 0;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            documents++;
+            try {
+                Object result = ((JavascriptExecutor) driver).executeAsyncScript(script, args, remaining);
+                if (result instanceof Map) {
+                    Map<?, ?> outcome = (Map<?, ?>) result;
+                    lastObserved = String.valueOf(outcome.get("observed"));
+                    lastUrl = String.valueOf(outcome.get("url"));
+                    if (Boolean.TRUE.equals(outcome.get("ok"))) {
+                        return;
+                    }
+                }
+            } catch (JavascriptException | ScriptTimeoutException | StaleElementReferenceException e) {
+                if (!isDocumentReplaced(e)) {
+                    throw e;
+                }
+                // The document was replaced mid-wait (full navigation); resume on the new one
+                lastObserved = "navigation: " + e.getClass().getSimpleName();
+            }
+        }
+
+        throw new TimeoutException("Timed out after " + timeout.toMillis() + "ms waiting for " + description
+            + " (url: " + lastUrl + ", observed: " + lastObserved + ", documents: " + documents + ")");
+    }
+
+    // A script timeout only means the driver gave up before our own deadline, so it is resumed too
+    static boolean isDocumentReplaced(WebDriverException e) {
+        if (e instanceof ScriptTimeoutException || e instanceof StaleElementReferenceException) {
+            return true;
+        }
+        String message = e.getRawMessage();
+        return message != null && DOCUMENT_REPLACED.matcher(message).find();
+    }
+}
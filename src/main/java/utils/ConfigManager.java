@@ -1,108 +1,600 @@
 package utils;
 
-import java.io.FileInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable configuration snapshot, built once per JVM.
+ *
+ * Values are resolved in increasing order of precedence from config.properties on the
+ * classpath, the active environment profile ({@code env.<profile>.*} keys), environment
+ * variables naming a key of the file ({@code APP_URL} for {@code app.url}) and system
+ * properties. Blank values are treated as unset. Typed settings are parsed and validated up
+ * front, so every thread reads plain final fields and a bad value fails the run before any
+ * browser starts.
+ */
+public final class ConfigManager {
+    private static final Logger log = LoggerFactory.getLogger(ConfigManager.class);
+    private static final String CONFIG_RESOURCE = "config.properties";
+    private static final List<String> SUPPORTED_BROWSERS = Arrays.asList("chrome", "firefox", "edge");
+
+    private final Map<String, String> values;
+    private final List<String> errors = new ArrayList<>();
 
-public class ConfigManager {
-    private static final Properties properties = new Properties();
-    private static ConfigManager instance;
-    
-    private ConfigManager() {
-        loadProperties();
+    private final String environment;
+    private final String appUrl;
+    private final String username;
+    private final String password;
+    private final String browser;
+    private final boolean headless;
+    private final int threads;
+    private final int implicitWait;
+    private final int pageLoadTimeout;
+    private final int testTimeout;
+    private final int driverPoolSize;
+    private final int driverPoolAcquireTimeout;
+    private final int driverPoolLeakThreshold;
+    private final boolean browserReuseEnabled;
+    private final int browserRecycleAfter;
+    private final String sessionLandingPath;
+    private final String seleniumGridUrl;
+    private final boolean seleniumGridEnabled;
+    private final boolean commandMetricsEnabled;
+    private final boolean localServerEnabled;
+    private final int localLatencyMs;
+    private final double localErrorRate;
+    private final int shardIndex;
+    private final int shardCount;
+    private final int shardForks;
+    private final String shardHistoryFile;
+    private final boolean shardHistoryShared;
+    private final boolean scenarioLongestFirst;
+    private final int scenarioDefaultDuration;
+    private final int rerunAttempts;
+    private final String flakyHistoryFile;
+    private final double flakyQuarantineRate;
+    private final int flakyQuarantineMinRuns;
+    private final int browserPrelaunch;
+    private final boolean browserFast;
+    private final int gridQueueTimeout;
+    private final int gridBackoffInitialMs;
+    private final int gridBackoffMaxMs;
+    private final List<String> browserFastBlock;
+    private final String driverCachePath;
+    private final int driverCacheTtl;
+    private final String impactBase;
+    private final String impactBaselineTags;
+    private final boolean concurrencyAdaptive;
+    private final double concurrencyBrowsersPerCore;
+    private final int concurrencyMemoryReserveMb;
+    private final int concurrencyBrowserMemoryMb;
+    private final int concurrencyInterval;
+    private final boolean screenshotOnFailure;
+    private final boolean screenshotSteps;
+    private final boolean screenshotPageSource;
+    private final int screenshotQueue;
+    private final String metricsHost;
+    private final int metricsPort;
+    private final int metricsSnapshotInterval;
+    private final int testStepTimeout;
+
+    private static final class Holder {
+        private static final ConfigManager INSTANCE = new ConfigManager(
+            loadProperties(), System.getenv(), System.getProperties());
     }
-    
-    public static ConfigManager getInstance() {
-        if (instance == null) {
-            instance = new ConfigManager();
+
+    ConfigManager(Properties file, Map<String, String> environmentVariables, Properties systemProperties) {
+        this.values = Collections.unmodifiableMap(resolve(file, environmentVariables, systemProperties));
+
+        environment = stringValue("env", "local");
+        appUrl = urlValue("app.url", null);
+        username = stringValue("app.username", null);
+        password = stringValue("app.password", null);
+        browser = stringValue("browser", "chrome").toLowerCase();
+        if (!SUPPORTED_BROWSERS.contains(browser)) {
+            errors.add("browser: unsupported value '" + browser + "', expected one of " + SUPPORTED_BROWSERS);
+        }
+        headless = booleanValue("headless", false);
+        concurrencyAdaptive = booleanValue("concurrency.adaptive", false);
+        concurrencyBrowsersPerCore = doubleValue("concurrency.browsers.per.core", 1, 0.1, 64);
+        // Adaptive runs start as many threads as the cores allow and let the controller lower that
+        int configuredThreads = intValue("threads", 1, 1);
+        threads = concurrencyAdaptive
+            ? Math.max(configuredThreads,
+                (int) (Runtime.getRuntime().availableProcessors() * concurrencyBrowsersPerCore))
+            : configuredThreads;
+        implicitWait = intValue("browser.implicit.wait", 0, 0);
+        pageLoadTimeout = intValue("browser.page.load.timeout", 30, 1);
+        testTimeout = intValue("test.timeout", 60, 0);
+        testStepTimeout = intValue("test.step.timeout", 45, 0);
+        driverPoolSize = intValue("driver.pool.size", threads, 1);
+        driverPoolAcquireTimeout = intValue("driver.pool.acquire.timeout", 120, 1);
+        driverPoolLeakThreshold = intValue("driver.pool.leak.threshold", 600, 1);
+        browserReuseEnabled = booleanValue("browser.reuse", false);
+        browserRecycleAfter = intValue("browser.recycle.after", 0, 0);
+        sessionLandingPath = stringValue("session.landing.path", "/inventory.html");
+        seleniumGridEnabled = booleanValue("selenium.grid.enabled", false);
+        seleniumGridUrl = seleniumGridEnabled
+            ? urlValue("selenium.grid.url", "http://localhost:4444/wd/hub")
+            : stringValue("selenium.grid.url", "http://localhost:4444/wd/hub");
+        commandMetricsEnabled = booleanValue("metrics.commands.enabled", true);
+        localServerEnabled = booleanValue("local.server.enabled", false);
+        localLatencyMs = intValue("local.latency.ms", 0, 0);
+        localErrorRate = doubleValue("local.error.rate", 0, 0, 1);
+        shardCount = intValue("shard.count", 1, 1);
+        shardIndex = intValue("shard.index", 0, 0);
+        if (shardIndex >= shardCount) {
+            errors.add("shard.index: must be below shard.count (" + shardCount + ") but was " + shardIndex);
+        }
+        shardForks = intValue("shard.forks", 1, 1);
+        shardHistoryFile = stringValue("shard.history.file", "target/cucumber-reports/cucumber.json");
+        shardHistoryShared = booleanValue("shard.history.shared", false);
+        scenarioLongestFirst = booleanValue("scenario.longest.first", true);
+        scenarioDefaultDuration = intValue("scenario.default.duration", 0, 0);
+        rerunAttempts = intValue("rerun.attempts", 0, 0);
+        flakyHistoryFile = stringValue("flaky.history.file", "target/flaky-history.json");
+        flakyQuarantineRate = doubleValue("flaky.quarantine.rate", 0, 0, 1);
+        flakyQuarantineMinRuns = intValue("flaky.quarantine.min.runs", 5, 1);
+        browserPrelaunch = intValue("browser.prelaunch", 0, 0);
+        browserFast = booleanValue("browser.fast", false);
+        gridQueueTimeout = intValue("selenium.grid.queue.timeout", 300, 1);
+        gridBackoffInitialMs = intValue("selenium.grid.backoff.initial.ms", 500, 1);
+        gridBackoffMaxMs = intValue("selenium.grid.backoff.max.ms", 10000, 1);
+        browserFastBlock = listValue("browser.fast.block");
+        driverCachePath = stringValue("driver.cache.path", "");
+        driverCacheTtl = intValue("driver.cache.ttl", 86400, 0);
+        impactBase = stringValue("impact.base", "");
+        impactBaselineTags = stringValue("impact.baseline.tags", "");
+        concurrencyMemoryReserveMb = intValue("concurrency.memory.reserve.mb", 1024, 0);
+        concurrencyBrowserMemoryMb = intValue("concurrency.browser.memory.mb", 500, 1);
+        concurrencyInterval = intValue("concurrency.interval", 5, 1);
+        screenshotOnFailure = booleanValue("report.screenshot.on.failure", true);
+        screenshotSteps = booleanValue("report.screenshot.steps", false);
+        screenshotPageSource = booleanValue("report.screenshot.page.source", true);
+        screenshotQueue = intValue("report.screenshot.queue", 32, 1);
+        metricsHost = stringValue("metrics.host", "127.0.0.1");
+        metricsPort = intValue("metrics.port", 0, 0);
+        metricsSnapshotInterval = intValue("metrics.snapshot.interval", 0, 0);
+
+        if (appUrl == null) {
+            errors.add("app.url: not set for environment '" + environment + "'");
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration:\n  - " + String.join("\n  - ", errors));
         }
-        return instance;
+        log.info("Configuration loaded: env={}, appUrl={}, browser={}, headless={}, threads={}, grid={}",
+            environment, appUrl, browser, headless, threads, seleniumGridEnabled);
     }
-    
-    private void loadProperties() {
-        try (InputStream input = new FileInputStream("src/main/resources/config.properties")) {
+
+    public static ConfigManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static Properties loadProperties() {
+        Properties properties = new Properties();
+        try (InputStream input = ConfigManager.class.getClassLoader().getResourceAsStream(CONFIG_RESOURCE)) {
+            if (input == null) {
+                throw new IllegalStateException(CONFIG_RESOURCE + " not found on the classpath");
+            }
             properties.load(input);
         } catch (IOException e) {
-            System.err.println("Error loading config.properties: " + e.getMessage());
+            throw new IllegalStateException("Error loading " + CONFIG_RESOURCE, e);
         }
+        return properties;
     }
-    
-    public String getProperty(String key) {
-        // First check system properties, then environment variables, then config file
-        String value = System.getProperty(key);
-        if (value != null) {
-            return value;
+
+    private static Map<String, String> resolve(Properties file, Map<String, String> environmentVariables, Properties systemProperties) {
+        Map<String, String> resolved = new HashMap<>();
+        for (String key : file.stringPropertyNames()) {
+            put(resolved, key, file.getProperty(key));
         }
-        
-        value = System.getenv(key.toUpperCase().replace(".", "_"));
+
+        // Legacy file keys that name the setting the code actually reads
+        putIfAbsent(resolved, "browser", resolved.get("browser.default"));
+        putIfAbsent(resolved, "headless", resolved.get("browser.headless"));
+        putIfAbsent(resolved, "threads", resolved.get("test.threads"));
+        putIfAbsent(resolved, "env", resolved.get("env.default"));
+
+        // The profile must be known before its overrides apply, so look past the file for it
+        String profile = firstNonBlank(systemProperties.getProperty("env"), environmentVariables.get("ENV"), resolved.get("env"), "local");
+        String prefix = "env." + profile + ".";
+        for (String key : file.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                String setting = key.substring(prefix.length());
+                put(resolved, setting.equals("url") ? "app.url" : setting, file.getProperty(key));
+            }
+        }
+
+        // Only variables naming a known setting apply, so PATH, HOME and the CI's own never do
+        Set<String> known = knownKeys(file);
+        for (Map.Entry<String, String> variable : environmentVariables.entrySet()) {
+            String key = variable.getKey().toLowerCase().replace('_', '.');
+            if (known.contains(key)) {
+                put(resolved, key, variable.getValue());
+            }
+        }
+        for (String key : systemProperties.stringPropertyNames()) {
+            put(resolved, key, systemProperties.getProperty(key));
+        }
+        resolved.put("env", profile);
+        return resolved;
+    }
+
+    // The file's keys, the settings its profiles override and the settings its legacy keys name
+    private static Set<String> knownKeys(Properties file) {
+        Set<String> known = new HashSet<>(Arrays.asList("browser", "headless", "threads", "env"));
+        for (String key : file.stringPropertyNames()) {
+            known.add(key);
+            int profileEnd = key.startsWith("env.") ? key.indexOf('.', "env.".length()) : -1;
+            if (profileEnd > 0) {
+                String setting = key.substring(profileEnd + 1);
+                known.add(setting.equals("url") ? "app.url" : setting);
+            }
+        }
+        return known;
+    }
+
+    private static void put(Map<String, String> target, String key, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            target.put(key, value.trim());
+        }
+    }
+
+    private static void putIfAbsent(Map<String, String> target, String key, String value) {
+        if (!target.containsKey(key)) {
+            put(target, key, value);
+        }
+    }
+
+    private static String firstNonBlank(String... candidates) {
+        for (String candidate : candidates) {
+            if (candidate != null && !candidate.trim().isEmpty()) {
+                return candidate.trim();
+            }
+        }
+        return null;
+    }
+
+    private String stringValue(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    private List<String> listValue(String key) {
+        List<String> items = new ArrayList<>();
+        for (String item : stringValue(key, "").split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    private boolean booleanValue(String key, boolean defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            errors.add(key + ": expected true or false but was '" + value + "'");
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private int intValue(String key, int defaultValue, int minimum) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < minimum) {
+                errors.add(key + ": must be at least " + minimum + " but was " + parsed);
+                return defaultValue;
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            errors.add(key + ": expected an integer but was '" + value + "'");
+            return defaultValue;
+        }
+    }
+
+    private double doubleValue(String key, double defaultValue, double minimum, double maximum) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            double parsed = Double.parseDouble(value);
+            if (parsed < minimum || parsed > maximum) {
+                errors.add(key + ": must be between " + minimum + " and " + maximum + " but was " + parsed);
+                return defaultValue;
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            errors.add(key + ": expected a number but was '" + value + "'");
+            return defaultValue;
+        }
+    }
+
+    private String urlValue(String key, String defaultValue) {
+        String value = stringValue(key, defaultValue);
         if (value != null) {
-            return value;
+            try {
+                new URL(value);
+            } catch (MalformedURLException e) {
+                errors.add(key + ": not a valid URL '" + value + "'");
+            }
         }
-        
-        return properties.getProperty(key);
+        return value;
+    }
+
+    public String getProperty(String key) {
+        return values.get(key);
     }
-    
+
     public String getProperty(String key, String defaultValue) {
-        String value = getProperty(key);
-        return value != null ? value : defaultValue;
+        return values.getOrDefault(key, defaultValue);
     }
-    
+
     public boolean getBooleanProperty(String key) {
-        String value = getProperty(key);
-        return Boolean.parseBoolean(value);
+        return Boolean.parseBoolean(values.get(key));
     }
-    
+
     public boolean getBooleanProperty(String key, boolean defaultValue) {
-        String value = getProperty(key);
+        String value = values.get(key);
         return value != null ? Boolean.parseBoolean(value) : defaultValue;
     }
-    
+
     public int getIntProperty(String key) {
-        String value = getProperty(key);
-        return Integer.parseInt(value);
+        return Integer.parseInt(values.get(key));
     }
-    
+
     public int getIntProperty(String key, int defaultValue) {
-        String value = getProperty(key);
+        String value = values.get(key);
         return value != null ? Integer.parseInt(value) : defaultValue;
     }
-    
+
     // Convenience methods for common properties
     public String getAppUrl() {
-        return getProperty("app.url");
+        return appUrl;
     }
-    
+
     public String getUsername() {
-        return getProperty("app.username");
+        return username;
     }
-    
+
     public String getPassword() {
-        return getProperty("app.password");
+        return password;
+    }
+
+    public String getPassword(String username) {
+        return values.getOrDefault("app.password." + username, password);
     }
-    
+
+    public String getSessionLandingPath() {
+        return sessionLandingPath;
+    }
+
     public String getBrowser() {
-        String browser = getProperty("browser", "chrome");
-        return browser.isEmpty() ? "chrome" : browser;
+        return browser;
     }
-    
+
     public boolean isHeadless() {
-        return getBooleanProperty("headless", false);
+        return headless;
     }
-    
+
     public String getEnvironment() {
-        return getProperty("env", "local");
+        return environment;
     }
-    
+
     public int getThreads() {
-        return getIntProperty("threads", 1);
+        return threads;
+    }
+
+    public int getImplicitWait() {
+        return implicitWait;
+    }
+
+    public int getPageLoadTimeout() {
+        return pageLoadTimeout;
+    }
+
+    public int getTestTimeout() {
+        return testTimeout;
+    }
+
+    public int getDriverPoolSize() {
+        return driverPoolSize;
+    }
+
+    public int getDriverPoolAcquireTimeout() {
+        return driverPoolAcquireTimeout;
+    }
+
+    public int getDriverPoolLeakThreshold() {
+        return driverPoolLeakThreshold;
     }
-    
+
+    public boolean isBrowserReuseEnabled() {
+        return browserReuseEnabled;
+    }
+
+    public int getBrowserRecycleAfter() {
+        return browserRecycleAfter;
+    }
+
     public String getSeleniumGridUrl() {
-        return getProperty("selenium.grid.url", "http://localhost:4444/wd/hub");
+        return seleniumGridUrl;
     }
-    
+
     public boolean isSeleniumGridEnabled() {
-        return getBooleanProperty("selenium.grid.enabled", false);
+        return seleniumGridEnabled;
+    }
+
+    public boolean isCommandMetricsEnabled() {
+        return commandMetricsEnabled;
+    }
+
+    public boolean isLocalServerEnabled() {
+        return localServerEnabled;
+    }
+
+    public int getLocalLatencyMs() {
+        return localLatencyMs;
+    }
+
+    public double getLocalErrorRate() {
+        return localErrorRate;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getShardForks() {
+        return shardForks;
+    }
+
+    public String getShardHistoryFile() {
+        return shardHistoryFile;
+    }
+
+    public boolean isShardHistoryShared() {
+        return shardHistoryShared;
+    }
+
+    public boolean isScenarioLongestFirst() {
+        return scenarioLongestFirst;
+    }
+
+    public int getScenarioDefaultDuration() {
+        return scenarioDefaultDuration;
+    }
+
+    public int getRerunAttempts() {
+        return rerunAttempts;
+    }
+
+    public String getFlakyHistoryFile() {
+        return flakyHistoryFile;
+    }
+
+    public double getFlakyQuarantineRate() {
+        return flakyQuarantineRate;
+    }
+
+    public int getFlakyQuarantineMinRuns() {
+        return flakyQuarantineMinRuns;
+    }
+
+    public String getImpactBase() {
+        return impactBase;
+    }
+
+    public String getImpactBaselineTags() {
+        return impactBaselineTags;
+    }
+
+    public int getBrowserPrelaunch() {
+        return browserPrelaunch;
+    }
+
+    public String getDriverCachePath() {
+        return driverCachePath;
+    }
+
+    public int getDriverCacheTtl() {
+        return driverCacheTtl;
+    }
+
+    public boolean isBrowserFast() {
+        return browserFast;
+    }
+
+    public List<String> getBrowserFastBlock() {
+        return browserFastBlock;
+    }
+
+    public int getGridQueueTimeout() {
+        return gridQueueTimeout;
+    }
+
+    public int getGridBackoffInitialMs() {
+        return gridBackoffInitialMs;
+    }
+
+    public int getGridBackoffMaxMs() {
+        return gridBackoffMaxMs;
+    }
+
+    public boolean isConcurrencyAdaptive() {
+        return concurrencyAdaptive;
+    }
+
+    public double getConcurrencyBrowsersPerCore() {
+        return concurrencyBrowsersPerCore;
+    }
+
+    public int getConcurrencyMemoryReserveMb() {
+        return concurrencyMemoryReserveMb;
+    }
+
+    public int getConcurrencyBrowserMemoryMb() {
+        return concurrencyBrowserMemoryMb;
+    }
+
+    public int getConcurrencyInterval() {
+        return concurrencyInterval;
+    }
+
+    public boolean isScreenshotOnFailure() {
+        return screenshotOnFailure;
+    }
+
+    public boolean isScreenshotSteps() {
+        return screenshotSteps;
+    }
+
+    public boolean isScreenshotPageSource() {
+        return screenshotPageSource;
+    }
+
+    public int getScreenshotQueue() {
+        return screenshotQueue;
+    }
+
+    public String getMetricsHost() {
+        return metricsHost;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public int getMetricsSnapshotInterval() {
+        return metricsSnapshotInterval;
+    }
+
+    public int getTestStepTimeout() {
+        return testStepTimeout;
     }
 }
@@ -0,0 +1,68 @@
+package utils;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves each browser's driver binary once per JVM.
+ *
+ * WebDriverManager looks up the driver version matching the installed browser and
+ * downloads it into its cache on first use. Versions it resolved within the last
+ * {@code driver.cache.ttl} seconds are taken from the cache without a network lookup, so
+ * runs work offline once the cache is filled. When resolution fails anyway, Selenium
+ * Manager, built into Selenium, finds the driver when the browser starts.
+ */
+public final class DriverBinaries {
+    private static final Logger log = LoggerFactory.getLogger(DriverBinaries.class);
+    private static final Map<String, String> resolved = new ConcurrentHashMap<>();
+
+    private DriverBinaries() {
+    }
+
+    /**
+     * Makes the driver for the given browser available, resolving it on the first call only.
+     * Returns the driver's path, or an empty string when Selenium Manager is left to find it.
+     */
+    public static String resolve(String browser) {
+        return resolved.computeIfAbsent(browser, DriverBinaries::setup);
+    }
+
+    private static String setup(String browser) {
+        ConfigManager config = ConfigManager.getInstance();
+        WebDriverManager manager;
+        switch (browser) {
+            case "chrome":
+                manager = WebDriverManager.chromedriver();
+                break;
+            case "firefox":
+                manager = WebDriverManager.firefoxdriver();
+                break;
+            case "edge":
+                manager = WebDriverManager.edgedriver();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported browser: " + browser);
+        }
+        if (!config.getDriverCachePath().isEmpty()) {
+            manager.cachePath(config.getDriverCachePath());
+        }
+        manager.ttl(config.getDriverCacheTtl()).useLocalVersionsPropertiesFirst();
+
+        long start = System.nanoTime();
+        try {
+            manager.setup();
+            String path = manager.getDownloadedDriverPath();
+            log.info("Resolved {} driver to {}", browser, path);
+            return path != null ? path : "";
+        } catch (RuntimeException e) {
+            log.warn("Could not resolve the {} driver ({}), leaving it to Selenium Manager", browser, e.getMessage());
+            return "";
+        } finally {
+            CommandMetrics.recordPhase("driver.resolve", System.nanoTime() - start);
+        }
+    }
+}
@@ -1,27 +1,67 @@
 package utils;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
-import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
+import java.util.Set;
 
 public class DriverManager {
-    private static WebDriver driver;
+    private static final Logger log = LoggerFactory.getLogger(DriverManager.class);
     private static final ConfigManager config = ConfigManager.getInstance();
+    private static final DriverPool pool = new DriverPool(
+        DriverManager::createDriver,
+        config.getDriverPoolSize(),
+        Duration.ofSeconds(config.getDriverPoolAcquireTimeout()),
+        Duration.ofSeconds(config.getDriverPoolLeakThreshold()));
+    private static final ConcurrencyController concurrency = config.isConcurrencyAdaptive()
+        ? new ConcurrencyController(pool, config.getConcurrencyBrowsersPerCore(),
+            config.getConcurrencyMemoryReserveMb(), config.getConcurrencyBrowserMemoryMb(),
+            Duration.ofSeconds(config.getConcurrencyInterval()), Duration.ofSeconds(config.getDriverPoolAcquireTimeout()))
+        : null;
+    private static GridSessionBroker gridBroker;
     
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown, "driver-pool-shutdown"));
+    }
+    
+    /**
+     * Starts launching browser.prelaunch browsers in the background, so the first
+     * scenarios do not wait for browser startup. Does nothing when it is 0.
+     */
+    public static void startPrelaunch() {
+        pool.startPrelaunch(config.getBrowserPrelaunch());
+    }
+    
+    /**
+     * Returns the calling thread's browser. With adaptive concurrency, a thread that does not
+     * hold one yet waits while the machine is running as many scenarios as it can take.
+     * Getting a browser does not count against the scenario's time budget.
+     */
     public static WebDriver getDriver() {
-        if (driver == null) {
-            driver = createDriver();
+        WebDriver current = pool.current();
+        if (current != null) {
+            return current;
         }
-        return driver;
+        // Waiting for a browser is not the scenario's doing, so it does not use up its time budget
+        return ScenarioWatchdog.excluding(() -> concurrency != null ? concurrency.admit(pool::checkout) : pool.checkout());
+    }
+    
+    public static DriverPool getPool() {
+        return pool;
     }
     
     public static WebDriver createDriver() {
@@ -29,17 +69,30 @@ public class DriverManager {
         boolean headless = config.isHeadless();
         boolean useGrid = config.isSeleniumGridEnabled();
         
-        if (useGrid) {
-            return createRemoteDriver(browser, headless);
-        } else {
-            return createLocalDriver(browser, headless);
+        long start = System.nanoTime();
+        WebDriver driver = useGrid ? createRemoteDriver(browser, headless) : createLocalDriver(browser, headless);
+        CommandMetrics.recordPhase("driver.create", System.nanoTime() - start);
+        if (config.isCommandMetricsEnabled()) {
+            driver = new EventFiringDecorator<WebDriver>(new LatencyListener()).decorate(driver);
         }
+        if (config.isBrowserFast()) {
+            FastMode.blockResources(driver, config.getBrowserFastBlock());
+        }
+        applyTimeouts(driver);
+        return driver;
+    }
+    
+    private static void applyTimeouts(WebDriver driver) {
+        if (config.getImplicitWait() > 0) {
+            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(config.getImplicitWait()));
+        }
+        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(config.getPageLoadTimeout()));
     }
     
     private static WebDriver createLocalDriver(String browser, boolean headless) {
         switch (browser) {
             case "chrome":
-                WebDriverManager.chromedriver().setup();
+                DriverBinaries.resolve("chrome");
                 ChromeOptions chromeOptions = new ChromeOptions();
                 if (headless) {
                     chromeOptions.addArguments("--headless");
@@ -48,22 +101,31 @@ public class DriverManager {
                 chromeOptions.addArguments("--disable-dev-shm-usage");
                 chromeOptions.addArguments("--disable-gpu");
                 chromeOptions.addArguments("--window-size=1920,1080");
+                if (config.isBrowserFast()) {
+                    FastMode.applyTo(chromeOptions);
+                }
                 return new ChromeDriver(chromeOptions);
                 
             case "firefox":
-                WebDriverManager.firefoxdriver().setup();
+                DriverBinaries.resolve("firefox");
                 FirefoxOptions firefoxOptions = new FirefoxOptions();
                 if (headless) {
                     firefoxOptions.addArguments("--headless");
                 }
+                if (config.isBrowserFast()) {
+                    FastMode.applyTo(firefoxOptions);
+                }
                 return new FirefoxDriver(firefoxOptions);
                 
             case "edge":
-                WebDriverManager.edgedriver().setup();
+                DriverBinaries.resolve("edge");
                 EdgeOptions edgeOptions = new EdgeOptions();
                 if (headless) {
                     edgeOptions.addArguments("--headless");
                 }
+                if (config.isBrowserFast()) {
+                    FastMode.applyTo(edgeOptions);
+                }
                 return new EdgeDriver(edgeOptions);
                 
             default:
@@ -84,6 +146,9 @@ public class DriverManager {
                     }
                     chromeOptions.addArguments("--no-sandbox");
                     chromeOptions.addArguments("--disable-dev-shm-usage");
+                    if (config.isBrowserFast()) {
+                        FastMode.applyTo(chromeOptions);
+                    }
                     capabilities.merge(chromeOptions);
                     break;
                     
@@ -93,6 +158,9 @@ public class DriverManager {
                     if (headless) {
                         firefoxOptions.addArguments("--headless");
                     }
+                    if (config.isBrowserFast()) {
+                        FastMode.applyTo(firefoxOptions);
+                    }
                     capabilities.merge(firefoxOptions);
                     break;
                     
@@ -102,6 +170,9 @@ public class DriverManager {
                     if (headless) {
                         edgeOptions.addArguments("--headless");
                     }
+                    if (config.isBrowserFast()) {
+                        FastMode.applyTo(edgeOptions);
+                    }
                     capabilities.merge(edgeOptions);
                     break;
                     
@@ -109,22 +180,72 @@ public class DriverManager {
                     throw new IllegalArgumentException("Unsupported browser: " + browser);
             }
             
-            String gridUrl = config.getSeleniumGridUrl();
-            return new RemoteWebDriver(new URL(gridUrl), capabilities);
+            return gridBroker().newSession(capabilities);
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to create remote WebDriver", e);
         }
     }
     
+    private static synchronized GridSessionBroker gridBroker() throws MalformedURLException {
+        if (gridBroker == null) {
+            gridBroker = new GridSessionBroker(new URL(config.getSeleniumGridUrl()),
+                Duration.ofSeconds(config.getGridQueueTimeout()),
+                config.getGridBackoffInitialMs(), config.getGridBackoffMaxMs());
+        }
+        return gridBroker;
+    }
+    
     public static void quitDriver() {
-        if (driver != null) {
-            driver.quit();
-            driver = null;
+        pool.invalidate();
+    }
+    
+    /**
+     * Ends the calling thread's use of its browser. With browser reuse enabled the browser
+     * is reset and returned to the pool, unless it has reached its recycle limit or the
+     * reset fails, in which case it is quit like {@link #quitDriver()}.
+     */
+    public static void releaseDriver() {
+        WebDriver driver = pool.current();
+        if (driver == null) {
+            return;
+        }
+        
+        int recycleAfter = config.getBrowserRecycleAfter();
+        if (!config.isBrowserReuseEnabled() || (recycleAfter > 0 && pool.getUseCount(driver) + 1 >= recycleAfter)) {
+            pool.invalidate();
+            return;
         }
+        
+        try {
+            resetBrowserState(driver);
+            pool.checkin();
+        } catch (WebDriverException e) {
+            log.warn("Browser reset failed, relaunching: {}", e.getMessage());
+            pool.invalidate();
+        }
+    }
+    
+    private static void resetBrowserState(WebDriver driver) {
+        Set<String> handles = driver.getWindowHandles();
+        if (handles.size() > 1) {
+            String keep = handles.iterator().next();
+            for (String handle : handles) {
+                if (!handle.equals(keep)) {
+                    driver.switchTo().window(handle).close();
+                }
+            }
+            driver.switchTo().window(keep);
+        }
+        
+        driver.manage().deleteAllCookies();
+        ((JavascriptExecutor) driver).executeScript(
+            "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+        driver.get("about:blank");
     }
     
     public static void closeDriver() {
+        WebDriver driver = pool.current();
         if (driver != null) {
             driver.close();
         }
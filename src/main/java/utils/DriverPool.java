@@ -0,0 +1,305 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of WebDriver sessions leased to threads.
+ *
+ * A thread checks out a driver once and keeps getting the same instance until it
+ * checks it back in or invalidates it, so parallel scenarios never share a browser.
+ * Leases held by threads that have died are reclaimed when the pool runs dry.
+ *
+ * With pre-launch started, the pool keeps some browsers launched in the background ahead of
+ * demand, so a checkout finds one ready instead of waiting for a browser process to start.
+ */
+public class DriverPool {
+    private static final Logger log = LoggerFactory.getLogger(DriverPool.class);
+    private final Supplier<WebDriver> factory;
+    private final int maxSize;
+    private final Duration acquireTimeout;
+    private final Duration leakThreshold;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<WebDriver> idle = new LinkedBlockingDeque<>();
+    private final Map<Thread, Lease> leases = new ConcurrentHashMap<>();
+    private final Map<WebDriver, Integer> useCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger launching = new AtomicInteger();
+    private volatile ExecutorService launcher;
+    private volatile int prelaunchTarget;
+    private volatile boolean closed;
+
+    public DriverPool(Supplier<WebDriver> factory, int maxSize, Duration acquireTimeout, Duration leakThreshold) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1 but was " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.acquireTimeout = acquireTimeout;
+        this.leakThreshold = leakThreshold;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Returns the driver leased to the calling thread, leasing one first if needed.
+     * Blocks up to the acquire timeout when every slot is taken.
+     */
+    public WebDriver checkout() {
+        Lease lease = leases.get(Thread.currentThread());
+        if (lease != null) {
+            return lease.driver;
+        }
+
+        acquirePermit();
+        WebDriver driver;
+        try {
+            driver = takeIdle();
+            if (driver == null) {
+                driver = factory.get();
+            }
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        leases.put(Thread.currentThread(), new Lease(Thread.currentThread(), driver));
+        replenish();
+        return driver;
+    }
+
+    // A browser already being launched is ready sooner than one launched now, and launching
+    // another could take the pool past its size
+    private WebDriver takeIdle() {
+        try {
+            WebDriver driver = idle.pollFirst();
+            while (driver == null && launching.get() > 0) {
+                driver = idle.pollFirst(100, TimeUnit.MILLISECONDS);
+            }
+            return driver;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a pre-launched WebDriver", e);
+        }
+    }
+
+    /**
+     * Starts keeping up to {@code count} idle browsers launched in the background, never
+     * more than the pool size in all. Each checkout that takes one launches a replacement.
+     */
+    public synchronized void startPrelaunch(int count) {
+        if (count < 1 || launcher != null || closed) {
+            return;
+        }
+        prelaunchTarget = Math.min(count, maxSize);
+        AtomicInteger threads = new AtomicInteger();
+        launcher = Executors.newFixedThreadPool(prelaunchTarget, runnable -> {
+            Thread thread = new Thread(runnable, "driver-prelaunch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Pre-launching up to {} browsers", prelaunchTarget);
+        replenish();
+    }
+
+    private void replenish() {
+        ExecutorService executor = launcher;
+        while (executor != null && !closed) {
+            int pending = launching.get();
+            int ready = idle.size() + pending;
+            if (ready >= prelaunchTarget || ready + leases.size() >= maxSize) {
+                return;
+            }
+            if (launching.compareAndSet(pending, pending + 1)) {
+                executor.execute(this::launch);
+            }
+        }
+    }
+
+    private void launch() {
+        try {
+            WebDriver driver = factory.get();
+            if (closed) {
+                quitQuietly(driver);
+            } else {
+                idle.addLast(driver);
+            }
+        } catch (RuntimeException e) {
+            // Not retried here, so a browser that cannot start is not relaunched in a loop
+            log.warn("Pre-launching a browser failed: {}", e.getMessage());
+        } finally {
+            launching.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the calling thread's driver to the pool so another thread can reuse it.
+     */
+    public void checkin() {
+        Lease lease = leases.remove(Thread.currentThread());
+        if (lease == null) {
+            throw new IllegalStateException("Thread " + Thread.currentThread().getName() + " does not hold a WebDriver lease");
+        }
+        useCounts.merge(lease.driver, 1, Integer::sum);
+        idle.addFirst(lease.driver);
+        permits.release();
+    }
+
+    /**
+     * Quits the calling thread's driver and frees its slot. Does nothing if the thread holds no lease.
+     */
+    public void invalidate() {
+        Lease lease = leases.remove(Thread.currentThread());
+        if (lease == null) {
+            return;
+        }
+        try {
+            quitQuietly(lease.driver);
+        } finally {
+            permits.release();
+        }
+        replenish();
+    }
+
+    /**
+     * Returns the driver leased to the calling thread, or null if it holds none.
+     */
+    public WebDriver current() {
+        Lease lease = leases.get(Thread.currentThread());
+        return lease != null ? lease.driver : null;
+    }
+
+    /**
+     * Returns the driver leased to the given thread, or null if it holds none.
+     */
+    public WebDriver current(Thread owner) {
+        Lease lease = leases.get(owner);
+        return lease != null ? lease.driver : null;
+    }
+
+    /**
+     * Returns how many leases of the given driver have been checked back in.
+     */
+    public int getUseCount(WebDriver driver) {
+        return useCounts.getOrDefault(driver, 0);
+    }
+
+    /**
+     * Reclaims leases whose owning thread has terminated and reports leases held longer
+     * than the leak threshold. Returns the leases that were found leaking.
+     */
+    public List<Lease> detectLeaks() {
+        List<Lease> leaked = new ArrayList<>();
+        Instant now = Instant.now();
+        for (Lease lease : leases.values()) {
+            if (!lease.owner.isAlive()) {
+                if (leases.remove(lease.owner, lease)) {
+                    log.warn("Reclaiming WebDriver leaked by terminated thread {}", lease.owner.getName());
+                    quitQuietly(lease.driver);
+                    permits.release();
+                    leaked.add(lease);
+                }
+            } else if (Duration.between(lease.since, now).compareTo(leakThreshold) > 0) {
+                log.warn("WebDriver held by thread {} for longer than {}s", lease.owner.getName(), leakThreshold.getSeconds());
+                leaked.add(lease);
+            }
+        }
+        return leaked;
+    }
+
+    /**
+     * Quits every idle and leased driver.
+     */
+    public void shutdown() {
+        closed = true;
+        if (launcher != null) {
+            launcher.shutdownNow();
+        }
+        WebDriver driver;
+        while ((driver = idle.pollFirst()) != null) {
+            quitQuietly(driver);
+        }
+        for (Lease lease : leases.values()) {
+            if (leases.remove(lease.owner, lease)) {
+                quitQuietly(lease.driver);
+                permits.release();
+            }
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return leases.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getLaunchingCount() {
+        return launching.get();
+    }
+
+    private void acquirePermit() {
+        try {
+            if (permits.tryAcquire()) {
+                return;
+            }
+            detectLeaks();
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out after " + acquireTimeout.getSeconds()
+                    + "s waiting for a WebDriver (pool size " + maxSize + ", leased " + leases.size() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a WebDriver", e);
+        }
+    }
+
+    private void quitQuietly(WebDriver driver) {
+        useCounts.remove(driver);
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            log.warn("Error quitting WebDriver: {}", e.getMessage());
+        }
+    }
+
+    public static final class Lease {
+        private final Thread owner;
+        private final WebDriver driver;
+        private final Instant since = Instant.now();
+
+        private Lease(Thread owner, WebDriver driver) {
+            this.owner = owner;
+            this.driver = driver;
+        }
+
+        public Thread getOwner() {
+            return owner;
+        }
+
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        public Instant getSince() {
+            return since;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lean browser settings for fast runs ({@code browser.fast}).
+ *
+ * Pages are handed over once their DOM is ready rather than after every image has loaded,
+ * and images, extensions and background networking are turned off. In Chrome and Edge,
+ * requests matching {@code browser.fast.block} are also blocked inside the browser through
+ * the DevTools protocol, and each scenario's loaded and blocked requests are counted for
+ * the network report. Firefox gets the same preferences but no URL blocking.
+ */
+public final class FastMode {
+    private static final Logger log = LoggerFactory.getLogger(FastMode.class);
+    private static final Map<WebDriver, Traffic> traffic = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final List<Map<String, Object>> scenarios = Collections.synchronizedList(new ArrayList<>());
+
+    private FastMode() {
+    }
+
+    public static void applyTo(ChromiumOptions<?> options) {
+        options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+        options.addArguments("--disable-extensions", "--disable-background-networking", "--disable-component-update",
+            "--disable-default-apps", "--disable-sync", "--blink-settings=imagesEnabled=false");
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("profile.managed_default_content_settings.images", 2);
+        options.setExperimentalOption("prefs", prefs);
+    }
+
+    public static void applyTo(FirefoxOptions options) {
+        options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+        options.addPreference("permissions.default.image", 2);
+        options.addPreference("extensions.enabledScopes", 0);
+        options.addPreference("network.prefetch-next", false);
+        options.addPreference("network.dns.disablePrefetch", true);
+        options.addPreference("network.http.speculative-parallel-limit", 0);
+    }
+
+    /**
+     * Blocks the configured URL patterns in the browser and starts counting its requests.
+     * Does nothing for browsers without DevTools access.
+     */
+    public static void blockResources(WebDriver driver, List<String> patterns) {
+        if (!(driver instanceof HasDevTools)) {
+            log.debug("{} has no DevTools access, resources are not blocked", driver.getClass().getSimpleName());
+            return;
+        }
+        try {
+            DevTools devTools = ((HasDevTools) driver).getDevTools();
+            devTools.createSessionIfThereIsNotOne();
+            Traffic counts = new Traffic();
+            devTools.addListener(event("Network.loadingFinished"), counts::finished);
+            devTools.addListener(event("Network.loadingFailed"), counts::failed);
+            devTools.send(new Command<>("Network.enable", new HashMap<>()));
+            if (!patterns.isEmpty()) {
+                Map<String, Object> params = new HashMap<>();
+                params.put("urls", patterns);
+                devTools.send(new Command<>("Network.setBlockedURLs", params));
+            }
+            traffic.put(driver, counts);
+        } catch (RuntimeException e) {
+            log.warn("Could not block resources through DevTools: {}", e.getMessage());
+        }
+    }
+
+    private static Event<Map<String, Object>> event(String name) {
+        return new Event<>(name, input -> input.read(Json.MAP_TYPE));
+    }
+
+    /**
+     * Records the requests the driver's browser loaded and blocked since the last call
+     * under the given scenario.
+     */
+    public static void finishScenario(WebDriver driver, String scenario) {
+        Traffic counts = driver == null ? null : traffic.get(driver);
+        if (counts == null) {
+            return;
+        }
+        Map<String, Object> entry = counts.drain();
+        entry.put("scenario", scenario);
+        scenarios.add(entry);
+        log.debug("Network for '{}': {}", scenario, entry);
+    }
+
+    /**
+     * Writes each scenario's request counts and their totals. Does nothing when no traffic
+     * was counted.
+     */
+    public static void writeReport(Path file) {
+        List<Map<String, Object>> entries;
+        synchronized (scenarios) {
+            entries = new ArrayList<>(scenarios);
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        long loaded = 0;
+        long bytes = 0;
+        long blocked = 0;
+        for (Map<String, Object> entry : entries) {
+            loaded += (Long) entry.get("requestsLoaded");
+            bytes += (Long) entry.get("bytesLoaded");
+            blocked += (Long) entry.get("requestsBlocked");
+        }
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requestsLoaded", loaded);
+        totals.put("bytesLoaded", bytes);
+        totals.put("requestsBlocked", blocked);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totals", totals);
+        report.put("scenarios", entries);
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+            log.info("Network report written to {}: {} requests blocked, {} loaded ({} KiB)",
+                file, blocked, loaded, bytes / 1024);
+        } catch (IOException e) {
+            log.warn("Could not write network report to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class Traffic {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong blocked = new AtomicLong();
+        private final Map<String, AtomicInteger> blockedByType = new ConcurrentHashMap<>();
+
+        private void finished(Map<String, Object> event) {
+            requests.incrementAndGet();
+            Object length = event.get("encodedDataLength");
+            if (length instanceof Number) {
+                bytes.addAndGet(((Number) length).longValue());
+            }
+        }
+
+        private void failed(Map<String, Object> event) {
+            if (event.get("blockedReason") != null) {
+                blocked.incrementAndGet();
+                blockedByType.computeIfAbsent(String.valueOf(event.get("type")), key -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+
+        private Map<String, Object> drain() {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("requestsLoaded", requests.getAndSet(0));
+            entry.put("bytesLoaded", bytes.getAndSet(0));
+            entry.put("requestsBlocked", blocked.getAndSet(0));
+            Map<String, Integer> byType = new TreeMap<>();
+            blockedByType.forEach((type, count) -> byType.put(type, count.getAndSet(0)));
+            byType.values().removeIf(count -> count == 0);
+            entry.put("blockedByType", byType);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-scenario flake statistics kept across runs.
+ *
+ * A scenario is flaky in a run when it failed and then passed when rerun in the same JVM.
+ * Counts are kept by scenario key (see {@link ScenarioHistory#key}) in a JSON file that is
+ * re-read and updated under a file lock at the end of a run, so shards sharing the file do
+ * not lose each other's counts. A scenario that was flaky in at least the quarantine rate
+ * of enough runs is quarantined.
+ */
+public class FlakeHistory {
+    private static final Logger log = LoggerFactory.getLogger(FlakeHistory.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, Stats> history;
+    private final Map<String, Outcome> outcomes = new ConcurrentHashMap<>();
+
+    FlakeHistory(Map<String, Stats> history) {
+        this.history = Collections.unmodifiableMap(history);
+    }
+
+    /**
+     * Reads the history file; a missing or unreadable file yields an empty history.
+     */
+    public static FlakeHistory load(Path file) {
+        try {
+            return new FlakeHistory(read(file));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read flake history from {}: {}", file, e.getMessage());
+            return new FlakeHistory(new TreeMap<>());
+        }
+    }
+
+    private static Map<String, Stats> read(Path file) throws IOException {
+        Map<String, Stats> stats = new TreeMap<>();
+        if (!Files.isRegularFile(file) || Files.size(file) == 0) {
+            return stats;
+        }
+        JsonNode scenarios = mapper.readTree(file.toFile()).path("scenarios");
+        scenarios.fields().forEachRemaining(entry -> stats.put(entry.getKey(), Stats.from(entry.getValue())));
+        return stats;
+    }
+
+    /**
+     * Returns the share of recorded runs in which the scenario was flaky.
+     */
+    public double getFlakeRate(String key) {
+        Stats stats = history.get(key);
+        return stats == null || stats.runs == 0 ? 0 : (double) stats.flaky / stats.runs;
+    }
+
+    public boolean isQuarantined(String key, double rate, int minRuns) {
+        Stats stats = history.get(key);
+        return rate > 0 && stats != null && stats.runs >= minRuns && getFlakeRate(key) >= rate;
+    }
+
+    public void recordPassed(String key, String name, int attempts) {
+        outcomes.put(key, new Outcome(name, attempts, true));
+    }
+
+    public void recordFailed(String key, String name, int attempts) {
+        outcomes.put(key, new Outcome(name, attempts, false));
+    }
+
+    public List<String> getFlakyThisRun() {
+        List<String> flaky = new ArrayList<>();
+        outcomes.forEach((key, outcome) -> {
+            if (outcome.isFlaky()) {
+                flaky.add(key);
+            }
+        });
+        Collections.sort(flaky);
+        return flaky;
+    }
+
+    /**
+     * Adds this run's outcomes to the history file, merging with whatever other JVMs have
+     * written to it since it was loaded.
+     */
+    public void save(Path file) throws IOException {
+        if (outcomes.isEmpty()) {
+            return;
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path lockFile = parent.resolve(file.getFileName() + ".lock");
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                Map<String, Stats> stats = read(file);
+                String now = Instant.now().toString();
+                outcomes.forEach((key, outcome) -> {
+                    Stats scenario = stats.computeIfAbsent(key, k -> new Stats());
+                    scenario.name = outcome.name;
+                    scenario.runs++;
+                    if (outcome.isFlaky()) {
+                        scenario.flaky++;
+                        scenario.lastFlaky = now;
+                    } else if (!outcome.passed) {
+                        scenario.failed++;
+                    }
+                });
+
+                Map<String, Object> scenarios = new LinkedHashMap<>();
+                stats.forEach((key, scenario) -> scenarios.put(key, scenario.toMap()));
+                Map<String, Object> document = new LinkedHashMap<>();
+                document.put("updated", now);
+                document.put("scenarios", scenarios);
+                mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), document);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Writes this run's flaky, failed and quarantined scenarios.
+     */
+    public void writeRunReport(Path report, double quarantineRate, int quarantineMinRuns) throws IOException {
+        List<Map<String, Object>> flaky = new ArrayList<>();
+        List<Map<String, Object>> failed = new ArrayList<>();
+        new TreeMap<>(outcomes).forEach((key, outcome) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("scenario", outcome.name);
+            entry.put("key", key);
+            entry.put("attempts", outcome.attempts);
+            entry.put("historicalFlakeRate", Math.round(getFlakeRate(key) * 1000) / 1000.0);
+            entry.put("quarantined", isQuarantined(key, quarantineRate, quarantineMinRuns));
+            if (outcome.isFlaky()) {
+                flaky.add(entry);
+            } else if (!outcome.passed) {
+                failed.add(entry);
+            }
+        });
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("scenarios", outcomes.size());
+        document.put("flaky", flaky);
+        document.put("failed", failed);
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        mapper.writerWithDefaultPrettyPrinter().writeValue(report.toFile(), document);
+    }
+
+    private static final class Outcome {
+        private final String name;
+        private final int attempts;
+        private final boolean passed;
+
+        private Outcome(String name, int attempts, boolean passed) {
+            this.name = name;
+            this.attempts = attempts;
+            this.passed = passed;
+        }
+
+        private boolean isFlaky() {
+            return passed && attempts > 1;
+        }
+    }
+
+    static final class Stats {
+        private String name;
+        private int runs;
+        private int flaky;
+        private int failed;
+        private String lastFlaky;
+
+        private static Stats from(JsonNode node) {
+            Stats stats = new Stats();
+            stats.name = node.path("name").asText();
+            stats.runs = node.path("runs").asInt();
+            stats.flaky = node.path("flaky").asInt();
+            stats.failed = node.path("failed").asInt();
+            stats.lastFlaky = node.hasNonNull("lastFlaky") ? node.path("lastFlaky").asText() : null;
+            return stats;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", name);
+            map.put("runs", runs);
+            map.put("flaky", flaky);
+            map.put("failed", failed);
+            map.put("flakeRate", runs == 0 ? 0 : Math.round((double) flaky / runs * 1000) / 1000.0);
+            map.put("lastFlaky", lastFlaky);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The files and lines changed in the working tree since a git revision, committed or not.
+ *
+ * Paths are relative to the working directory. Lines are those of the current version of
+ * a file; where lines were only removed, the lines either side of the removal count. A
+ * file that was added, deleted or is untracked maps to an empty set, meaning all of it.
+ */
+public final class GitDiff {
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\S+ \\+(\\d+)(?:,(\\d+))? @@");
+
+    private GitDiff() {
+    }
+
+    public static Map<String, Set<Integer>> changedSince(String revision) {
+        Map<String, Set<Integer>> changes = parse(git("diff", "--unified=0", "--no-color", "--no-ext-diff",
+            "--no-renames", "--relative", revision, "--"));
+        for (String untracked : git("ls-files", "--others", "--exclude-standard").split("\n")) {
+            if (!untracked.trim().isEmpty()) {
+                changes.put(untracked.trim(), new TreeSet<>());
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Reads the output of {@code git diff --unified=0}.
+     */
+    static Map<String, Set<Integer>> parse(String diff) {
+        Map<String, Set<Integer>> changes = new TreeMap<>();
+        String oldPath = null;
+        Set<Integer> lines = null;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("diff --git ")) {
+                oldPath = null;
+                lines = null;
+            } else if (line.startsWith("--- ")) {
+                oldPath = stripPrefix(line.substring(4));
+            } else if (line.startsWith("+++ ")) {
+                String newPath = stripPrefix(line.substring(4));
+                // Added and deleted files change as a whole
+                boolean whole = newPath == null || oldPath == null;
+                lines = changes.computeIfAbsent(newPath != null ? newPath : oldPath, key -> new TreeSet<>());
+                if (whole) {
+                    lines = null;
+                }
+            } else if (lines != null) {
+                Matcher hunk = HUNK.matcher(line);
+                if (hunk.find()) {
+                    int start = Integer.parseInt(hunk.group(1));
+                    int count = hunk.group(2) == null ? 1 : Integer.parseInt(hunk.group(2));
+                    if (count == 0) {
+                        lines.add(Math.max(1, start));
+                        lines.add(start + 1);
+                    }
+                    for (int i = start; i < start + count; i++) {
+                        lines.add(i);
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    private static String stripPrefix(String path) {
+        if (path.equals("/dev/null")) {
+            return null;
+        }
+        return path.startsWith("a/") || path.startsWith("b/") ? path.substring(2) : path;
+    }
+
+    private static String git(String... arguments) {
+        List<String> command = new ArrayList<>(Collections.singletonList("git"));
+        command.addAll(Arrays.asList(arguments));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IllegalStateException(String.join(" ", command) + " failed with exit code " + exitCode
+                    + ": " + output.trim());
+            }
+            return output;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not run git", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running git", e);
+        }
+    }
+}
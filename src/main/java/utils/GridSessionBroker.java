@@ -0,0 +1,213 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.InvalidArgumentException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Requests Selenium Grid sessions without overrunning the hub.
+ *
+ * Before asking for a session the broker reads the hub's {@code /status} and only sends as
+ * many concurrent new-session requests per browser as there are free slots for it. When
+ * none are free, or the hub turns a request down, it retries after an exponential backoff
+ * with jitter until the queue timeout. All sessions share one HTTP client. Time spent
+ * waiting for a slot is recorded as the {@code grid.queue} phase, apart from the
+ * {@code grid.session} phase of creating the session itself.
+ */
+public class GridSessionBroker {
+    private static final Logger log = LoggerFactory.getLogger(GridSessionBroker.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final long STATUS_MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final ClientConfig clientConfig;
+    private final HttpClient client;
+    private final Duration queueTimeout;
+    private final long backoffInitialMillis;
+    private final long backoffMaxMillis;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private JsonNode status;
+    private long statusReadAt;
+
+    public GridSessionBroker(URL gridUrl, Duration queueTimeout, long backoffInitialMillis, long backoffMaxMillis) {
+        this.clientConfig = ClientConfig.defaultConfig()
+            .baseUrl(gridUrl)
+            .connectionTimeout(Duration.ofSeconds(10))
+            .readTimeout(queueTimeout.plusSeconds(30));
+        this.client = new SharedClient(HttpClient.Factory.createDefault().createClient(clientConfig));
+        this.queueTimeout = queueTimeout;
+        this.backoffInitialMillis = backoffInitialMillis;
+        this.backoffMaxMillis = Math.max(backoffInitialMillis, backoffMaxMillis);
+    }
+
+    /**
+     * Creates a session with the given capabilities, waiting for a free slot as needed.
+     * Throws once the queue timeout has passed without a session.
+     */
+    public WebDriver newSession(Capabilities capabilities) {
+        String browser = capabilities.getBrowserName();
+        long start = System.nanoTime();
+        long deadline = start + queueTimeout.toNanos();
+        WebDriverException lastFailure = null;
+        for (int attempt = 0; ; attempt++) {
+            if (reserveSlot(browser)) {
+                long requested = System.nanoTime();
+                try {
+                    WebDriver driver = new RemoteWebDriver(
+                        new HttpCommandExecutor(Collections.emptyMap(), clientConfig, config -> client), capabilities);
+                    CommandMetrics.recordPhase("grid.queue", requested - start);
+                    CommandMetrics.recordPhase("grid.session", System.nanoTime() - requested);
+                    // The cached status still counts the slot this session now holds as free
+                    invalidateStatus();
+                    if (attempt > 0) {
+                        log.info("Got a {} session after waiting {}ms for the Grid", browser,
+                            TimeUnit.NANOSECONDS.toMillis(requested - start));
+                    }
+                    return driver;
+                } catch (InvalidArgumentException e) {
+                    throw e;
+                } catch (WebDriverException e) {
+                    lastFailure = e;
+                    log.debug("Grid did not create a {} session: {}", browser, e.getMessage());
+                } finally {
+                    inFlight(browser).decrementAndGet();
+                }
+            }
+
+            long backoff = backoffMillis(attempt);
+            if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff) > deadline) {
+                throw new IllegalStateException("No " + browser + " session from the Grid within "
+                    + queueTimeout.getSeconds() + "s", lastFailure);
+            }
+            sleep(backoff);
+        }
+    }
+
+    /**
+     * Takes one of the free slots the hub reports for the browser. When the hub's status
+     * cannot be read, requests are not held back and the hub's answer decides.
+     */
+    private boolean reserveSlot(String browser) {
+        int free = freeSlots(readStatus(), browser);
+        AtomicInteger requests = inFlight(browser);
+        while (true) {
+            int current = requests.get();
+            if (free >= 0 && current >= free) {
+                return false;
+            }
+            if (requests.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private AtomicInteger inFlight(String browser) {
+        return inFlight.computeIfAbsent(browser, key -> new AtomicInteger());
+    }
+
+    private synchronized void invalidateStatus() {
+        status = null;
+    }
+
+    private synchronized JsonNode readStatus() {
+        if (status != null && System.nanoTime() - statusReadAt < STATUS_MAX_AGE_NANOS) {
+            return status;
+        }
+        try {
+            HttpResponse response = client.execute(new HttpRequest(HttpMethod.GET, "/status"));
+            status = response.getStatus() == 200 ? mapper.readTree(Contents.string(response)) : null;
+        } catch (Exception e) {
+            log.debug("Could not read Grid status: {}", e.getMessage());
+            status = null;
+        }
+        statusReadAt = System.nanoTime();
+        return status;
+    }
+
+    /**
+     * Counts the free slots for the browser on nodes that are up, or returns -1 when the
+     * status does not list nodes.
+     */
+    static int freeSlots(JsonNode status, String browser) {
+        JsonNode nodes = status == null ? null : status.path("value").path("nodes");
+        if (nodes == null || !nodes.isArray()) {
+            return -1;
+        }
+        int free = 0;
+        for (JsonNode node : nodes) {
+            if (!node.path("availability").asText("UP").equals("UP")) {
+                continue;
+            }
+            for (JsonNode slot : node.path("slots")) {
+                String slotBrowser = slot.path("stereotype").path("browserName").asText();
+                if (slotBrowser.equalsIgnoreCase(browser) && slot.path("session").isNull()) {
+                    free++;
+                }
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Returns the wait before the next attempt: it doubles from the initial backoff up to
+     * the maximum, and is drawn from its upper half so that waiting threads spread out.
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(backoffMaxMillis, backoffInitialMillis << Math.min(attempt, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a Grid session", e);
+        }
+    }
+
+    // Sessions close their client when they quit, which must not close it for the others
+    private static final class SharedClient implements HttpClient {
+        private final HttpClient delegate;
+
+        private SharedClient(HttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            return delegate.execute(request);
+        }
+
+        @Override
+        public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+            return delegate.openSocket(request, listener);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.cucumber.core.plugin.HtmlFormatter;
+import io.cucumber.core.plugin.JUnitFormatter;
+import io.cucumber.core.plugin.JsonFormatter;
+import io.cucumber.core.plugin.RerunFormatter;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.messages.types.Timestamp;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.Event;
+import io.cucumber.plugin.event.EventHandler;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cucumber plugin that writes the HTML, JSON, JUnit and rerun reports with one entry per
+ * scenario when failures are rerun. Takes the report directory as its argument, e.g.
+ * {@code utils.LastAttemptReportPlugin:target/cucumber-reports}, and writes
+ * {@code html/cucumber-pretty.html}, {@code cucumber.json}, {@code junit.xml} and
+ * {@code rerun.txt} there with Cucumber's own formatters.
+ *
+ * Each thread's current attempt at a scenario is held back until the runner decides on it.
+ * {@link #keepLastAttempt()} sends it to the HTML, JUnit and rerun formatters straight away;
+ * {@link #discardLastAttempt()} drops it because the scenario runs again. A scenario that
+ * recovers on a rerun therefore appears once, as passed, and is tagged {@code @flaky} in the
+ * JSON report. The JSON formatter is not thread-safe, so as in Cucumber's own wiring it gets
+ * the kept attempts in feature and line order when the run finishes.
+ *
+ * The formatters are cucumber-core internals ({@code io.cucumber.core.plugin}), and the plugin
+ * relies on the order Cucumber sends events and messages in: an attempt's come from the thread
+ * running it, starting with its {@code TestCase} message, and the {@code TestRunFinished}
+ * message comes last. Check both on every Cucumber upgrade.
+ */
+public class LastAttemptReportPlugin implements ConcurrentEventListener {
+    private static final Logger log = LoggerFactory.getLogger(LastAttemptReportPlugin.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String FLAKY_TAG = "@flaky";
+
+    private static final Map<Thread, Attempt> openAttempts = new ConcurrentHashMap<>();
+
+    private final Path jsonReport;
+    private final Formatters streamed = new Formatters();
+    private final Formatters ordered = new Formatters();
+    private final List<Event> heldEvents = new ArrayList<>();
+    private final List<Attempt> kept = new ArrayList<>();
+    private final Set<String> rerun = new HashSet<>();
+    private int attempts;
+    private TestRunFinished runFinished;
+
+    public LastAttemptReportPlugin(String directory) throws IOException {
+        Path root = Paths.get(directory);
+        this.jsonReport = root.resolve("cucumber.json");
+        new HtmlFormatter(open(root.resolve("html").resolve("cucumber-pretty.html"))).setEventPublisher(streamed);
+        new JUnitFormatter(open(root.resolve("junit.xml"))).setEventPublisher(streamed);
+        new RerunFormatter(open(root.resolve("rerun.txt"))).setEventPublisher(streamed);
+        new JsonFormatter(open(jsonReport)).setEventPublisher(ordered);
+    }
+
+    private static OutputStream open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        return Files.newOutputStream(file);
+    }
+
+    /**
+     * Sends the calling thread's last attempt to the reports, because the scenario will not
+     * run again.
+     */
+    public static void keepLastAttempt() {
+        Attempt attempt = openAttempts.remove(Thread.currentThread());
+        if (attempt != null) {
+            attempt.plugin.keep(attempt);
+        }
+    }
+
+    /**
+     * Leaves the calling thread's last attempt out of the reports, because the scenario is
+     * about to run again.
+     */
+    public static void discardLastAttempt() {
+        Attempt attempt = openAttempts.remove(Thread.currentThread());
+        if (attempt != null) {
+            attempt.plugin.discard(attempt);
+        }
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(Event.class, this::receive);
+        publisher.registerHandlerFor(Envelope.class, this::receive);
+    }
+
+    private void receive(Object event) {
+        if (event instanceof TestRunFinished) {
+            recordRunFinished((TestRunFinished) event);
+            return;
+        }
+        if (event instanceof Envelope && ((Envelope) event).getTestRunFinished().isPresent()) {
+            finish((Envelope) event);
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        Attempt attempt = openAttempts.get(thread);
+        if (attempt != null && attempt.isFinished() && opensAttempt(event)) {
+            // Run without a runner that decides, e.g. from the IDE: the next scenario decides for it
+            keepLastAttempt();
+            attempt = null;
+        }
+        if (attempt == null && opensAttempt(event)) {
+            attempt = new Attempt(this);
+            openAttempts.put(thread, attempt);
+        }
+        if (attempt != null) {
+            attempt.add(event);
+        } else {
+            pass(event);
+        }
+    }
+
+    private static boolean opensAttempt(Object event) {
+        if (event instanceof TestCaseStarted) {
+            return true;
+        }
+        return event instanceof Envelope
+            && (((Envelope) event).getTestCase().isPresent() || ((Envelope) event).getTestCaseStarted().isPresent());
+    }
+
+    // Cucumber already serialises its sends; the lock covers the runner's keep and discard calls
+    private synchronized void pass(Object event) {
+        streamed.send(event);
+        if (event instanceof Event) {
+            heldEvents.add((Event) event);
+        }
+    }
+
+    // Held back so the formatters still get it after the last attempt
+    private synchronized void recordRunFinished(TestRunFinished event) {
+        runFinished = event;
+    }
+
+    private synchronized void keep(Attempt attempt) {
+        attempt.sequence = attempts++;
+        attempt.events.forEach(streamed::send);
+        // The JSON formatter only reads events, so only those wait for the end of the run
+        attempt.events.removeIf(event -> !(event instanceof Event));
+        kept.add(attempt);
+    }
+
+    private synchronized void discard(Attempt attempt) {
+        attempts++;
+        rerun.add(attempt.key);
+    }
+
+    private synchronized void finish(Envelope envelope) {
+        for (Iterator<Attempt> open = openAttempts.values().iterator(); open.hasNext(); ) {
+            Attempt attempt = open.next();
+            if (attempt.plugin == this) {
+                open.remove();
+                keep(attempt);
+            }
+        }
+        if (runFinished == null) {
+            log.warn("The run finished without a TestRunFinished event; writing {} without its result", jsonReport);
+            Timestamp timestamp = envelope.getTestRunFinished().get().getTimestamp();
+            boolean success = envelope.getTestRunFinished().get().getSuccess();
+            runFinished = new TestRunFinished(Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos()),
+                new Result(success ? Status.PASSED : Status.FAILED, Duration.ZERO, null));
+        }
+        kept.sort(Comparator.comparing((Attempt attempt) -> attempt.uri)
+            .thenComparingInt(attempt -> attempt.line)
+            .thenComparingInt(attempt -> attempt.sequence));
+
+        heldEvents.forEach(ordered::send);
+        Set<String> recovered = new TreeSet<>();
+        for (Attempt attempt : kept) {
+            attempt.events.forEach(ordered::send);
+            if (rerun.contains(attempt.key) && attempt.status == Status.PASSED) {
+                recovered.add(attempt.key);
+            }
+        }
+        ordered.send(runFinished);
+        streamed.send(runFinished);
+        streamed.send(envelope);
+
+        tagFlaky(recovered);
+        if (attempts > kept.size()) {
+            log.info("Reports keep the last of {} attempts at {} scenarios; {} recovered on a rerun",
+                attempts, kept.size(), recovered.size());
+        }
+    }
+
+    private void tagFlaky(Set<String> recovered) {
+        if (recovered.isEmpty()) {
+            return;
+        }
+        try {
+            JsonNode features = mapper.readTree(jsonReport.toFile());
+            for (JsonNode feature : features) {
+                for (JsonNode element : feature.path("elements")) {
+                    String key = ScenarioHistory.key(feature.path("uri").asText(), element.path("line").asInt());
+                    if (recovered.contains(key) && !element.path("type").asText().equals("background")) {
+                        JsonNode tags = element.get("tags");
+                        ArrayNode array = tags instanceof ArrayNode ? (ArrayNode) tags : ((ObjectNode) element).putArray("tags");
+                        array.addObject().put("name", FLAKY_TAG).put("type", "Tag");
+                    }
+                }
+            }
+            mapper.writeValue(jsonReport.toFile(), features);
+        } catch (IOException e) {
+            log.warn("Could not tag flaky scenarios in {}: {}", jsonReport, e.getMessage());
+        }
+    }
+
+    // Filled only by the thread running the attempt until it is kept or discarded
+    private static final class Attempt {
+        private final LastAttemptReportPlugin plugin;
+        private final List<Object> events = new ArrayList<>();
+        private int sequence;
+        private String key = "";
+        private String uri = "";
+        private int line;
+        private Status status;
+        private boolean finishedEvent;
+        private boolean finishedMessage;
+
+        private Attempt(LastAttemptReportPlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        private void add(Object event) {
+            events.add(event);
+            if (event instanceof TestCaseStarted) {
+                TestCase testCase = ((TestCaseStarted) event).getTestCase();
+                uri = testCase.getUri().toString();
+                line = testCase.getLocation().getLine();
+                key = ScenarioHistory.key(uri, line);
+            } else if (event instanceof TestCaseFinished) {
+                status = ((TestCaseFinished) event).getResult().getStatus();
+                finishedEvent = true;
+            } else if (event instanceof Envelope && ((Envelope) event).getTestCaseFinished().isPresent()) {
+                finishedMessage = true;
+            }
+        }
+
+        private boolean isFinished() {
+            return finishedEvent && finishedMessage;
+        }
+    }
+
+    /**
+     * Publisher the wrapped formatters register with, fed only the attempts that are kept.
+     */
+    private static final class Formatters implements EventPublisher {
+        private final Map<Class<?>, List<EventHandler<?>>> handlers = new LinkedHashMap<>();
+
+        @Override
+        public <T> void registerHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+            handlers.computeIfAbsent(eventType, key -> new ArrayList<>()).add(handler);
+        }
+
+        @Override
+        public <T> void removeHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+            handlers.getOrDefault(eventType, new ArrayList<>()).remove(handler);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void send(Object event) {
+            handlers.forEach((type, registered) -> {
+                if (type.isInstance(event)) {
+                    registered.forEach(handler -> ((EventHandler<Object>) handler).receive(event));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package utils;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Times every call made through a decorated driver and records it in {@link CommandMetrics},
+ * keyed by the kind of object called and the method name (e.g. {@code driver.get},
+ * {@code element.click}).
+ */
+public class LatencyListener implements WebDriverListener {
+    private final ThreadLocal<Deque<Long>> starts = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        starts.get().push(System.nanoTime());
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        record(target, method);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        record(target, method);
+    }
+
+    private void record(Object target, Method method) {
+        Deque<Long> stack = starts.get();
+        if (stack.isEmpty()) {
+            return;
+        }
+        long elapsed = System.nanoTime() - stack.pop();
+        CommandMetrics.recordCommand(kindOf(target) + "." + method.getName(), elapsed);
+    }
+
+    private static String kindOf(Object target) {
+        if (target instanceof WebElement) {
+            return "element";
+        }
+        if (target instanceof WebDriver) {
+            return "driver";
+        }
+        if (target instanceof WebDriver.Navigation) {
+            return "navigation";
+        }
+        if (target instanceof WebDriver.TargetLocator) {
+            return "switchTo";
+        }
+        if (target instanceof WebDriver.Options || target instanceof WebDriver.Timeouts || target instanceof WebDriver.Window) {
+            return "manage";
+        }
+        if (target instanceof Alert) {
+            return "alert";
+        }
+        return target.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,40 @@
+package utils;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestStepFinished;
+
+import java.nio.file.Paths;
+
+/**
+ * Cucumber plugin that records each step's duration in {@link CommandMetrics} and writes
+ * the latency report when the run finishes. Takes the report path as its argument, e.g.
+ * {@code utils.LatencyReportPlugin:target/cucumber-reports/latency.json}.
+ */
+public class LatencyReportPlugin implements ConcurrentEventListener {
+    private final String reportPath;
+
+    public LatencyReportPlugin(String reportPath) {
+        this.reportPath = reportPath;
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestStepFinished.class, this::onStepFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, event -> CommandMetrics.writeReport(Paths.get(reportPath)));
+    }
+
+    private void onStepFinished(TestStepFinished event) {
+        long nanos = event.getResult().getDuration().toNanos();
+        if (event.getTestStep() instanceof PickleStepTestStep) {
+            PickleStepTestStep step = (PickleStepTestStep) event.getTestStep();
+            CommandMetrics.recordStep(step.getStep().getKeyword().trim() + " " + step.getStep().getText(), nanos);
+        } else if (event.getTestStep() instanceof HookTestStep) {
+            HookTestStep hook = (HookTestStep) event.getTestStep();
+            CommandMetrics.recordStep("hook " + hook.getHookType() + " " + hook.getCodeLocation(), nanos);
+        }
+    }
+}
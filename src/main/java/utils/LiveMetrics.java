@@ -0,0 +1,208 @@
+package utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the running suite in the Prometheus text format.
+ *
+ * Covers scenarios finished by status and still running, scenarios finished in the last
+ * minute, the pool's active, idle and launching browsers, time spent in WebDriver commands
+ * and in waits, and the scenario that has been running longest. It can be served over HTTP
+ * at {@code /metrics} and written to a file at a fixed interval, so a long run can be watched
+ * from a dashboard or a CI workspace while it goes on.
+ */
+public class LiveMetrics {
+    private static final Logger log = LoggerFactory.getLogger(LiveMetrics.class);
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final DriverPool pool;
+    private final long startedAt = System.nanoTime();
+    private final Map<String, AtomicLong> finished = new ConcurrentHashMap<>();
+    private final Map<Object, Running> running = new ConcurrentHashMap<>();
+    private final Deque<Long> recent = new ArrayDeque<>();
+    private HttpServer server;
+    private ScheduledExecutorService snapshots;
+
+    public LiveMetrics(DriverPool pool) {
+        this.pool = pool;
+    }
+
+    public void scenarioStarted(Object id, String name) {
+        running.put(id, new Running(name, System.nanoTime()));
+    }
+
+    public void scenarioFinished(Object id, String status) {
+        running.remove(id);
+        finished.computeIfAbsent(status.toLowerCase(Locale.ROOT), key -> new AtomicLong()).incrementAndGet();
+        synchronized (recent) {
+            recent.addLast(System.nanoTime());
+        }
+    }
+
+    /**
+     * Serves the metrics at {@code /metrics} on the given port of the given host's address.
+     */
+    public synchronized void serve(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(host), port), 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        log.info("Serving run metrics at http://{}:{}/metrics", host, server.getAddress().getPort());
+    }
+
+    /**
+     * Rewrites the file with the current metrics every {@code intervalSeconds}.
+     */
+    public synchronized void snapshotEvery(Path file, int intervalSeconds) {
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleAtFixedRate(() -> writeSnapshot(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops serving and taking snapshots.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+            snapshots = null;
+        }
+    }
+
+    public void writeSnapshot(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(partial, render(), StandardCharsets.UTF_8);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write metrics snapshot to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Returns the current metrics in the Prometheus text exposition format.
+     */
+    public String render() {
+        long now = System.nanoTime();
+        StringBuilder out = new StringBuilder();
+
+        header(out, "qa_scenarios_total", "counter", "Scenarios finished, by status; reruns count separately.");
+        new TreeMap<>(finished).forEach((status, count) ->
+            out.append("qa_scenarios_total{status=\"").append(label(status)).append("\"} ").append(count.get()).append('\n'));
+
+        header(out, "qa_scenarios_running", "gauge", "Scenarios running now.");
+        out.append("qa_scenarios_running ").append(running.size()).append('\n');
+
+        header(out, "qa_scenarios_per_minute", "gauge", "Scenarios finished in the last minute.");
+        out.append("qa_scenarios_per_minute ").append(finishedSince(now - MINUTE_NANOS)).append('\n');
+
+        header(out, "qa_browsers", "gauge", "Browsers in the driver pool, by state.");
+        out.append("qa_browsers{state=\"active\"} ").append(pool.getActiveCount()).append('\n');
+        out.append("qa_browsers{state=\"idle\"} ").append(pool.getIdleCount()).append('\n');
+        out.append("qa_browsers{state=\"launching\"} ").append(pool.getLaunchingCount()).append('\n');
+
+        long commands = 0;
+        double commandMillis = 0;
+        for (LatencyHistogram histogram : CommandMetrics.getCommands().values()) {
+            commands += histogram.getCount();
+            commandMillis += histogram.getTotalMillis();
+        }
+        header(out, "qa_commands_total", "counter", "WebDriver commands sent.");
+        out.append("qa_commands_total ").append(commands).append('\n');
+        header(out, "qa_command_seconds_total", "counter", "Time spent in WebDriver commands.");
+        out.append("qa_command_seconds_total ").append(seconds(commandMillis)).append('\n');
+
+        double waitMillis = 0;
+        for (Map.Entry<String, LatencyHistogram> phase : CommandMetrics.getPhases().entrySet()) {
+            if (phase.getKey().startsWith("wait.")) {
+                waitMillis += phase.getValue().getTotalMillis();
+            }
+        }
+        header(out, "qa_wait_seconds_total", "counter", "Time spent waiting for page conditions and elements.");
+        out.append("qa_wait_seconds_total ").append(seconds(waitMillis)).append('\n');
+
+        header(out, "qa_phase_seconds_total", "counter", "Time spent in framework phases, by phase.");
+        new TreeMap<>(CommandMetrics.getPhases()).forEach((phase, histogram) ->
+            out.append("qa_phase_seconds_total{phase=\"").append(label(phase)).append("\"} ")
+                .append(seconds(histogram.getTotalMillis())).append('\n'));
+
+        header(out, "qa_slowest_running_scenario_seconds", "gauge", "How long the longest-running scenario has run.");
+        running.values().stream().min((a, b) -> Long.compare(a.since, b.since)).ifPresent(slowest ->
+            out.append("qa_slowest_running_scenario_seconds{scenario=\"").append(label(slowest.name)).append("\"} ")
+                .append(seconds((now - slowest.since) / 1_000_000.0)).append('\n'));
+
+        header(out, "qa_run_seconds", "gauge", "Time since the run started.");
+        out.append("qa_run_seconds ").append(seconds((now - startedAt) / 1_000_000.0)).append('\n');
+        return out.toString();
+    }
+
+    private long finishedSince(long since) {
+        synchronized (recent) {
+            while (!recent.isEmpty() && recent.peekFirst() < since) {
+                recent.removeFirst();
+            }
+            return recent.size();
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000);
+    }
+
+    private static String label(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Running {
+        private final String name;
+        private final long since;
+
+        private Running(String name, long since) {
+            this.name = name;
+            this.since = since;
+        }
+    }
+}
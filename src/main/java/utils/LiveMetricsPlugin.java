@@ -0,0 +1,66 @@
+package utils;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestRunStarted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Cucumber plugin that keeps {@link LiveMetrics} current while the suite runs. Serves them on
+ * {@code metrics.port} and writes them every {@code metrics.snapshot.interval} seconds to the
+ * file given as its argument, e.g. {@code utils.LiveMetricsPlugin:target/cucumber-reports/metrics.prom}.
+ * Does nothing when both are 0.
+ */
+public class LiveMetricsPlugin implements ConcurrentEventListener {
+    private static final Logger log = LoggerFactory.getLogger(LiveMetricsPlugin.class);
+    private final Path snapshot;
+    private LiveMetrics metrics;
+
+    public LiveMetricsPlugin(String snapshotPath) {
+        this.snapshot = Paths.get(snapshotPath);
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        ConfigManager config = ConfigManager.getInstance();
+        if (config.getMetricsPort() == 0 && config.getMetricsSnapshotInterval() == 0) {
+            return;
+        }
+        metrics = new LiveMetrics(DriverManager.getPool());
+        publisher.registerHandlerFor(TestRunStarted.class, event -> start(config));
+        publisher.registerHandlerFor(TestCaseStarted.class,
+            event -> metrics.scenarioStarted(event.getTestCase().getId(), event.getTestCase().getName()));
+        publisher.registerHandlerFor(TestCaseFinished.class,
+            event -> metrics.scenarioFinished(event.getTestCase().getId(), event.getResult().getStatus().name()));
+        publisher.registerHandlerFor(TestRunFinished.class, event -> finish(config));
+    }
+
+    private void start(ConfigManager config) {
+        if (config.getMetricsPort() > 0) {
+            try {
+                metrics.serve(config.getMetricsHost(), config.getMetricsPort());
+            } catch (IOException e) {
+                // Another JVM of the run may hold the port; the snapshot still works
+                log.warn("Could not serve run metrics on port {}: {}", config.getMetricsPort(), e.getMessage());
+            }
+        }
+        if (config.getMetricsSnapshotInterval() > 0) {
+            metrics.snapshotEvery(snapshot, config.getMetricsSnapshotInterval());
+        }
+    }
+
+    private void finish(ConfigManager config) {
+        metrics.stop();
+        if (config.getMetricsSnapshotInterval() > 0) {
+            metrics.writeSnapshot(snapshot);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded stand-in for the application under test.
+ *
+ * Serves the login, inventory and cart pages from {@code standin/} on the classpath with
+ * the markup and selectors the page objects rely on, so scenarios run without the network.
+ * Every response can be delayed by a fixed latency, and a share of page loads answered with
+ * HTTP 500, to rehearse slow or flaky environments. The {@code embedded} profile enables it
+ * and points {@code app.url} at it.
+ */
+public class LocalAppServer {
+    private static final Logger log = LoggerFactory.getLogger(LocalAppServer.class);
+    private static final String RESOURCE_ROOT = "standin";
+    private static final byte[] ERROR_PAGE = ("<!DOCTYPE html><html><head><title>Swag Labs</title></head>"
+        + "<body><h1>500 Internal Server Error</h1><p>Injected by the local stand-in.</p></body></html>")
+        .getBytes(StandardCharsets.UTF_8);
+
+    private static LocalAppServer shared;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int latencyMs;
+    private final double errorRate;
+    private final Map<String, byte[]> resources = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    public LocalAppServer(InetSocketAddress address, int latencyMs, double errorRate) throws IOException {
+        this.latencyMs = latencyMs;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(address, 0);
+        // One thread per in-flight request so injected latency delays requests, not the queue
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "local-app-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts the shared stand-in on the host and port of {@code app.url} when the active
+     * profile enables it. Another JVM of the same run may already be serving that port, in
+     * which case its server is used.
+     */
+    public static synchronized void startIfEnabled() {
+        ConfigManager config = ConfigManager.getInstance();
+        if (!config.isLocalServerEnabled() || shared != null) {
+            return;
+        }
+        URL appUrl;
+        try {
+            appUrl = new URL(config.getAppUrl());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("app.url is not a valid URL: " + config.getAppUrl(), e);
+        }
+        int port = appUrl.getPort() != -1 ? appUrl.getPort() : appUrl.getDefaultPort();
+        try {
+            LocalAppServer server = new LocalAppServer(new InetSocketAddress(appUrl.getHost(), port),
+                config.getLocalLatencyMs(), config.getLocalErrorRate());
+            server.start();
+            shared = server;
+        } catch (BindException e) {
+            log.info("{} is already in use, assuming another test JVM is serving the stand-in", config.getAppUrl());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the local stand-in on " + config.getAppUrl(), e);
+        }
+    }
+
+    public static synchronized void stopShared() {
+        if (shared != null) {
+            shared.stop();
+            shared = null;
+        }
+    }
+
+    public void start() {
+        server.start();
+        log.info("Local stand-in serving {} (latency={}ms, errorRate={})", getBaseUrl(), latencyMs, errorRate);
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        log.info("Local stand-in stopped after {} requests ({} injected errors)", requests.get(), injectedErrors.get());
+    }
+
+    public String getBaseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                send(exchange, 405, "text/plain", new byte[0]);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/")) {
+                path = "/index.html";
+            }
+            byte[] body = path.contains("..") ? null : load(path);
+            if (body == null) {
+                send(exchange, 404, "text/plain", new byte[0]);
+                return;
+            }
+
+            // Only documents fail, so an injected error looks like a failed page load rather than a broken script
+            if (path.endsWith(".html") && errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                send(exchange, 500, contentType(".html"), ERROR_PAGE);
+                return;
+            }
+            send(exchange, 200, contentType(path), body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] load(String path) throws IOException {
+        byte[] cached = resources.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        try (InputStream input = LocalAppServer.class.getClassLoader().getResourceAsStream(RESOURCE_ROOT + path)) {
+            if (input == null) {
+                return null;
+            }
+            byte[] body = input.readAllBytes();
+            resources.put(path, body);
+            return body;
+        }
+    }
+
+    private static String contentType(String path) {
+        if (path.endsWith(".html")) {
+            return "text/html; charset=UTF-8";
+        }
+        if (path.endsWith(".js")) {
+            return "application/javascript; charset=UTF-8";
+        }
+        if (path.endsWith(".css")) {
+            return "text/css; charset=UTF-8";
+        }
+        return "application/octet-stream";
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        boolean head = exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(status, head || body.length == 0 ? -1 : body.length);
+        if (!head && body.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
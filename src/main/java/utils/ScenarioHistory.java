@@ -0,0 +1,145 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scenario durations recorded by a previous run's Cucumber JSON report.
+ *
+ * A scenario is identified by its feature file, relative to the working directory, and
+ * the line of its scenario or example row, so the key is the same whether the report was
+ * written by a single JVM or by a shard running elsewhere. A scenario's duration includes
+ * its background steps and hooks.
+ */
+public class ScenarioHistory {
+    private static final Logger log = LoggerFactory.getLogger(ScenarioHistory.class);
+
+    private final Map<String, Long> durations;
+    private final long defaultMillis;
+
+    ScenarioHistory(Map<String, Long> durations, long defaultMillis) {
+        this.durations = Collections.unmodifiableMap(durations);
+        if (defaultMillis > 0) {
+            this.defaultMillis = defaultMillis;
+        } else {
+            this.defaultMillis = durations.isEmpty()
+                ? 1
+                : Math.max(1, durations.values().stream().mapToLong(Long::longValue).sum() / durations.size());
+        }
+    }
+
+    public static ScenarioHistory empty() {
+        return new ScenarioHistory(new HashMap<>(), 0);
+    }
+
+    public static ScenarioHistory load(Path report) {
+        return load(report, 0);
+    }
+
+    /**
+     * Reads the report at the given path; a missing or unreadable report yields an empty
+     * history. Scenarios without a recorded duration are estimated at {@code defaultMillis},
+     * or at the mean recorded duration when that is zero.
+     */
+    public static ScenarioHistory load(Path report, long defaultMillis) {
+        if (!Files.isRegularFile(report)) {
+            log.info("No scenario history at {}", report);
+            return new ScenarioHistory(new HashMap<>(), defaultMillis);
+        }
+        try {
+            JsonNode features = new ObjectMapper().readTree(report.toFile());
+            Map<String, Long> durations = new HashMap<>();
+            for (JsonNode feature : features) {
+                String uri = feature.path("uri").asText();
+                long backgroundNanos = 0;
+                for (JsonNode element : feature.path("elements")) {
+                    long nanos = sumDurations(element.path("before")) + sumDurations(element.path("steps"))
+                        + sumDurations(element.path("after"));
+                    if (element.path("type").asText().equals("background")) {
+                        backgroundNanos = nanos;
+                        continue;
+                    }
+                    durations.put(key(uri, element.path("line").asInt()), (backgroundNanos + nanos) / 1_000_000);
+                    backgroundNanos = 0;
+                }
+            }
+            log.info("Loaded durations of {} scenarios from {}", durations.size(), report);
+            return new ScenarioHistory(durations, defaultMillis);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read scenario history from {}: {}", report, e.getMessage());
+            return new ScenarioHistory(new HashMap<>(), defaultMillis);
+        }
+    }
+
+    private static long sumDurations(JsonNode results) {
+        long nanos = 0;
+        for (JsonNode result : results) {
+            nanos += result.path("result").path("duration").asLong(0);
+        }
+        return nanos;
+    }
+
+    /**
+     * Builds the key for a scenario from a feature URI as written by Cucumber, either an
+     * absolute {@code file:///...} URI or one relative to the working directory such as
+     * {@code file:src/test/resources/features/login.feature}.
+     */
+    public static String key(String featureUri, int line) {
+        return featurePath(featureUri) + ":" + line;
+    }
+
+    public static String key(URI featureUri, int line) {
+        return key(featureUri.toString(), line);
+    }
+
+    /**
+     * Returns the feature file path relative to the working directory, using forward slashes.
+     */
+    public static String featurePath(String featureUri) {
+        return featurePath(featureUri, Paths.get("").toAbsolutePath());
+    }
+
+    /**
+     * Returns the feature file path relative to the working directory, resolving relative
+     * URIs against {@code base}, the directory the reporting JVM ran in.
+     */
+    public static String featurePath(String featureUri, Path base) {
+        String path = featureUri;
+        if (path.startsWith("file:")) {
+            URI uri = URI.create(path);
+            path = uri.isOpaque() ? uri.getSchemeSpecificPart() : Paths.get(uri).toString();
+        } else if (path.startsWith("classpath:")) {
+            return path;
+        }
+        Path cwd = Paths.get("").toAbsolutePath();
+        Path resolved = base.resolve(path).normalize();
+        return cwd.relativize(resolved).toString().replace('\\', '/');
+    }
+
+    public boolean contains(String key) {
+        return durations.containsKey(key);
+    }
+
+    /**
+     * Returns the recorded duration, or the default estimate for a scenario without history.
+     */
+    public long estimateMillis(String key) {
+        Long recorded = durations.get(key);
+        return recorded != null ? recorded : defaultMillis;
+    }
+
+    public int size() {
+        return durations.size();
+    }
+}
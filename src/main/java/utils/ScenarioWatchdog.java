@@ -0,0 +1,316 @@
+package utils;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestRunStarted;
+import io.cucumber.plugin.event.TestStep;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cucumber plugin that stops scenarios overrunning their time budget.
+ *
+ * Each step and hook may take up to {@code test.step.timeout} seconds and each scenario up to
+ * {@code test.timeout} seconds; time spent waiting for a browser does not count. When a budget
+ * runs out, the scenario's browser is terminated, its driver process and the browser under it
+ * killed, and the worker thread interrupted, so the blocked step fails straight away and the
+ * thread moves on to the next scenario. The failure carries a breakdown of where the time went.
+ */
+public class ScenarioWatchdog implements ConcurrentEventListener {
+    private static final Logger log = LoggerFactory.getLogger(ScenarioWatchdog.class);
+    private static final long CHECK_MILLIS = 200;
+    private static final long STUCK_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final Map<Thread, Watch> watches = new ConcurrentHashMap<>();
+    private static final Map<Thread, String> timeouts = new ConcurrentHashMap<>();
+
+    private final long scenarioBudgetNanos;
+    private final long stepBudgetNanos;
+    private ScheduledExecutorService monitor;
+
+    public ScenarioWatchdog() {
+        ConfigManager config = ConfigManager.getInstance();
+        this.scenarioBudgetNanos = TimeUnit.SECONDS.toNanos(config.getTestTimeout());
+        this.stepBudgetNanos = TimeUnit.SECONDS.toNanos(config.getTestStepTimeout());
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        if (scenarioBudgetNanos == 0 && stepBudgetNanos == 0) {
+            return;
+        }
+        publisher.registerHandlerFor(TestRunStarted.class, event -> start());
+        publisher.registerHandlerFor(TestCaseStarted.class, event -> {
+            timeouts.remove(Thread.currentThread());
+            watches.put(Thread.currentThread(), new Watch(event.getTestCase().getName()));
+        });
+        publisher.registerHandlerFor(TestStepStarted.class, event -> {
+            Watch watch = watches.get(Thread.currentThread());
+            if (watch != null) {
+                watch.stepStarted(describe(event.getTestStep()));
+            }
+        });
+        publisher.registerHandlerFor(TestStepFinished.class, event -> {
+            Watch watch = watches.get(Thread.currentThread());
+            if (watch != null && watch.stepFinished(event.getResult().getStatus().name())) {
+                // The interrupt has served its purpose; the scenario's remaining hooks should not see it
+                Thread.interrupted();
+            }
+        });
+        publisher.registerHandlerFor(TestCaseFinished.class, event -> watches.remove(Thread.currentThread()));
+        publisher.registerHandlerFor(TestRunFinished.class, event -> stop());
+    }
+
+    /**
+     * Runs the action without its time counting against the calling thread's budgets, for
+     * waits outside the scenario's control such as getting a browser.
+     */
+    public static <T> T excluding(Supplier<T> action) {
+        Watch watch = watches.get(Thread.currentThread());
+        if (watch == null) {
+            return action.get();
+        }
+        watch.pause();
+        try {
+            return action.get();
+        } finally {
+            watch.resume();
+        }
+    }
+
+    /**
+     * Returns and clears the breakdown of the calling thread's last scenario if the watchdog
+     * stopped it, or null.
+     */
+    public static String takeTimeout() {
+        return timeouts.remove(Thread.currentThread());
+    }
+
+    /**
+     * Returns the breakdown of the calling thread's current scenario if the watchdog stopped
+     * it, or null, leaving it for {@link #takeTimeout()}.
+     */
+    public static String peekTimeout() {
+        return timeouts.get(Thread.currentThread());
+    }
+
+    private synchronized void start() {
+        if (monitor != null) {
+            return;
+        }
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scenario-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(this::check, CHECK_MILLIS, CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stop() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+            monitor = null;
+        }
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (Map.Entry<Thread, Watch> entry : watches.entrySet()) {
+            Thread worker = entry.getKey();
+            Watch watch = entry.getValue();
+            try {
+                String overrun = watch.overrun(now, scenarioBudgetNanos, stepBudgetNanos);
+                if (overrun != null) {
+                    stopScenario(worker, watch, overrun, now);
+                } else if (watch.isStuck(now)) {
+                    log.error("Worker {} is still in '{}' after its browser was terminated:{}", worker.getName(),
+                        watch.step, stackOf(worker));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Watchdog check of {} failed: {}", worker.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private void stopScenario(Thread worker, Watch watch, String overrun, long now) {
+        WebDriver driver = DriverManager.getPool().current(worker);
+        String terminated = driver != null ? terminate(driver) : "No browser was open";
+        String breakdown = watch.breakdown(overrun, now) + "\n" + terminated;
+        timeouts.put(worker, breakdown);
+        log.error("{}", breakdown);
+        worker.interrupt();
+    }
+
+    /**
+     * Kills the local driver process serving the browser, and the browser under it, then asks
+     * the session to quit in the background in case it is remote or the process was not found.
+     */
+    private static String terminate(WebDriver driver) {
+        WebDriver unwrapped = driver;
+        while (unwrapped instanceof WrapsDriver) {
+            unwrapped = ((WrapsDriver) unwrapped).getWrappedDriver();
+        }
+        String result = "Browser session asked to quit";
+        if (unwrapped instanceof RemoteWebDriver
+            && ((RemoteWebDriver) unwrapped).getCommandExecutor() instanceof HttpCommandExecutor) {
+            int port = ((HttpCommandExecutor) ((RemoteWebDriver) unwrapped).getCommandExecutor())
+                .getAddressOfRemoteServer().getPort();
+            Optional<ProcessHandle> service = ProcessHandle.current().descendants()
+                .filter(process -> process.info().arguments()
+                    .map(arguments -> List.of(arguments).contains("--port=" + port)).orElse(false))
+                .findFirst();
+            if (service.isPresent()) {
+                service.get().descendants().forEach(ProcessHandle::destroyForcibly);
+                service.get().destroyForcibly();
+                result = "Driver process " + service.get().pid() + " and its browser killed";
+            }
+        }
+        Thread quit = new Thread(() -> {
+            try {
+                driver.quit();
+            } catch (RuntimeException e) {
+                log.debug("Quitting the stopped session failed: {}", e.getMessage());
+            }
+        }, "watchdog-quit");
+        quit.setDaemon(true);
+        quit.start();
+        return result;
+    }
+
+    private static String describe(TestStep step) {
+        if (step instanceof PickleStepTestStep) {
+            PickleStepTestStep pickleStep = (PickleStepTestStep) step;
+            return pickleStep.getStep().getKeyword().trim() + " " + pickleStep.getStep().getText();
+        }
+        if (step instanceof HookTestStep) {
+            return "hook " + ((HookTestStep) step).getHookType() + " " + step.getCodeLocation();
+        }
+        return step.getCodeLocation();
+    }
+
+    private static String stackOf(Thread thread) {
+        StringBuilder stack = new StringBuilder();
+        for (StackTraceElement element : thread.getStackTrace()) {
+            stack.append("\n\tat ").append(element);
+        }
+        return stack.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.1fs", nanos / 1e9);
+    }
+
+    static final class Watch {
+        private final String scenario;
+        private final long started = System.nanoTime();
+        private final List<String> finishedSteps = new ArrayList<>();
+        private String step;
+        private long stepStarted;
+        private long excluded;
+        private long stepExcluded;
+        private long pausedAt;
+        private long trippedAt;
+        private boolean stopped;
+
+        Watch(String scenario) {
+            this.scenario = scenario;
+        }
+
+        synchronized void stepStarted(String description) {
+            step = description;
+            stepStarted = System.nanoTime();
+            stepExcluded = 0;
+        }
+
+        /**
+         * Records the step's result and returns whether the watchdog had stopped it.
+         */
+        synchronized boolean stepFinished(String status) {
+            long now = System.nanoTime();
+            finishedSteps.add(String.format("  %-8s %6s  %s", status, seconds(now - stepStarted - stepExcluded), step));
+            step = null;
+            boolean tripped = trippedAt != 0;
+            trippedAt = 0;
+            return tripped;
+        }
+
+        synchronized void pause() {
+            pausedAt = System.nanoTime();
+        }
+
+        synchronized void resume() {
+            long paused = System.nanoTime() - pausedAt;
+            excluded += paused;
+            stepExcluded += paused;
+            pausedAt = 0;
+        }
+
+        /**
+         * Returns what overran its budget, or null while everything is within budget or the
+         * watchdog has already stopped the scenario.
+         */
+        synchronized String overrun(long now, long scenarioBudget, long stepBudget) {
+            if (pausedAt != 0 || trippedAt != 0) {
+                return null;
+            }
+            String overrun = null;
+            // Once stopped, the remaining hooks only have their step budget
+            if (scenarioBudget > 0 && !stopped && now - started - excluded > scenarioBudget) {
+                overrun = "Scenario '" + scenario + "' ran out of its " + seconds(scenarioBudget) + " budget";
+            } else if (stepBudget > 0 && step != null && now - stepStarted - stepExcluded > stepBudget) {
+                overrun = "Step '" + step + "' of scenario '" + scenario + "' ran out of its "
+                    + seconds(stepBudget) + " budget";
+            }
+            if (overrun != null) {
+                trippedAt = now;
+                stopped = true;
+            }
+            return overrun;
+        }
+
+        synchronized boolean isStuck(long now) {
+            if (trippedAt == 0 || now - trippedAt < STUCK_NANOS) {
+                return false;
+            }
+            // Reported once, then again only if it stays stuck for another period
+            trippedAt = now;
+            return true;
+        }
+
+        synchronized String breakdown(String overrun, long now) {
+            StringBuilder text = new StringBuilder(overrun).append(" after ")
+                .append(seconds(now - started - excluded)).append(" of scenario time");
+            if (excluded > 0) {
+                text.append(" (plus ").append(seconds(excluded)).append(" waiting for a browser)");
+            }
+            text.append(":\n");
+            finishedSteps.forEach(line -> text.append(line).append('\n'));
+            if (step != null) {
+                text.append(String.format("  %-8s %6s  %s", "RUNNING", seconds(now - stepStarted - stepExcluded), step));
+            }
+            return text.toString();
+        }
+    }
+}
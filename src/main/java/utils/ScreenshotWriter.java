@@ -0,0 +1,131 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes captured screenshots and page sources in the background.
+ *
+ * Files are named by the SHA-256 of their content, so the caller knows a capture's path
+ * straight away and can link to it from the report, and a frame or page identical to one
+ * already written is not written again. Page sources are gzipped; screenshots arrive as PNG
+ * and are written as they are. At most {@code queueSize} captures wait to be written; beyond
+ * that the capturing thread writes its own, so memory stays bounded and nothing is dropped.
+ */
+public class ScreenshotWriter {
+    private static final Logger log = LoggerFactory.getLogger(ScreenshotWriter.class);
+
+    private final Path directory;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> names = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+
+    public ScreenshotWriter(Path directory, int queueSize) {
+        this.directory = directory;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                Thread thread = new Thread(runnable, "screenshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Queues a PNG screenshot and returns the file it will be written to.
+     */
+    public Path writeScreenshot(byte[] png) {
+        return submit(png, ".png", false);
+    }
+
+    /**
+     * Queues a page source to be gzipped and returns the file it will be written to.
+     */
+    public Path writePageSource(String html) {
+        return submit(html.getBytes(StandardCharsets.UTF_8), ".html.gz", true);
+    }
+
+    private Path submit(byte[] content, String extension, boolean gzip) {
+        String name = sha256(content) + extension;
+        Path file = directory.resolve(name);
+        if (!names.add(name)) {
+            duplicates.incrementAndGet();
+            return file;
+        }
+        executor.execute(() -> write(file, content, gzip));
+        return file;
+    }
+
+    private void write(Path file, byte[] content, boolean gzip) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            // Written under a temporary name so a report viewer never sees half a file
+            Path partial = Files.createTempFile(directory, "capture", ".tmp");
+            try (OutputStream out = gzip
+                ? new GZIPOutputStream(Files.newOutputStream(partial))
+                : Files.newOutputStream(partial)) {
+                out.write(content);
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            written.incrementAndGet();
+            CommandMetrics.recordPhase("screenshot.write", System.nanoTime() - start);
+        } catch (IOException e) {
+            log.warn("Could not write {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for the queued captures to be written, up to the given time, and stops the writer.
+     */
+    public void close(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                log.warn("{} captures were still waiting to be written to {}", executor.getQueue().size(), directory);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!names.isEmpty()) {
+            log.info("Captures written to {}: {} files, {} duplicates skipped", directory, written.get(), duplicates.get());
+        }
+    }
+
+    public int getWrittenCount() {
+        return written.get();
+    }
+
+    public int getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
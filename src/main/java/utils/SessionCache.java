@@ -0,0 +1,109 @@
+package utils;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import pages.LoginPage;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches authenticated browser state per user so scenarios can start logged in.
+ *
+ * The first request for a user logs in through {@link LoginPage} and captures the
+ * resulting cookies and web storage. Later requests inject that state into the
+ * browser and open the landing page directly, skipping the login form.
+ */
+public class SessionCache {
+    private static final ConfigManager config = ConfigManager.getInstance();
+    private static final Map<String, AuthenticatedSession> sessions = new ConcurrentHashMap<>();
+
+    private static final String READ_STORAGE_SCRIPT =
+        "var local = {}, session = {};" +
+        "for (var i = 0; i < localStorage.length; i++) { var k = localStorage.key(i); local[k] = localStorage.getItem(k); }" +
+        "for (var j = 0; j < sessionStorage.length; j++) { var s = sessionStorage.key(j); session[s] = sessionStorage.getItem(s); }" +
+        "return {local: local, session: session};";
+
+    private static final String WRITE_STORAGE_SCRIPT =
+        "var local = arguments[0], session = arguments[1];" +
+        "for (var k in local) { localStorage.setItem(k, local[k]); }" +
+        "for (var s in session) { sessionStorage.setItem(s, session[s]); }";
+
+    /**
+     * Puts the browser on the landing page logged in as the given user, logging in
+     * through the UI only when no valid cached session exists.
+     */
+    public static void loginAs(WebDriver driver, String username, String password) {
+        AuthenticatedSession session = sessions.get(username);
+        if (session != null && !session.isExpired() && restore(driver, session)) {
+            return;
+        }
+        sessions.put(username, capture(driver, username, password));
+    }
+
+    public static void invalidate(String username) {
+        sessions.remove(username);
+    }
+
+    public static void clear() {
+        sessions.clear();
+    }
+
+    private static AuthenticatedSession capture(WebDriver driver, String username, String password) {
+        LoginPage loginPage = new LoginPage(driver);
+        loginPage.navigateToLoginPage(config.getAppUrl());
+        loginPage.login(username, password);
+        new TimedWait(driver, Duration.ofSeconds(10))
+            .until(ExpectedConditions.urlContains(config.getSessionLandingPath()));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, String>> storage =
+            (Map<String, Map<String, String>>) ((JavascriptExecutor) driver).executeScript(READ_STORAGE_SCRIPT);
+        return new AuthenticatedSession(driver.manage().getCookies(), storage.get("local"), storage.get("session"));
+    }
+
+    private static boolean restore(WebDriver driver, AuthenticatedSession session) {
+        String appUrl = config.getAppUrl();
+        if (!driver.getCurrentUrl().startsWith(appUrl)) {
+            // Cookies and storage can only be written for the origin currently loaded
+            driver.get(appUrl);
+        }
+
+        for (Cookie cookie : session.cookies) {
+            driver.manage().addCookie(cookie);
+        }
+        ((JavascriptExecutor) driver).executeScript(WRITE_STORAGE_SCRIPT, session.localStorage, session.sessionStorage);
+
+        String landingPath = config.getSessionLandingPath();
+        driver.get(appUrl.replaceAll("/+$", "") + landingPath);
+        return driver.getCurrentUrl().contains(landingPath);
+    }
+
+    private static final class AuthenticatedSession {
+        private final Set<Cookie> cookies;
+        private final Map<String, String> localStorage;
+        private final Map<String, String> sessionStorage;
+
+        private AuthenticatedSession(Set<Cookie> cookies, Map<String, String> localStorage, Map<String, String> sessionStorage) {
+            this.cookies = cookies;
+            this.localStorage = localStorage != null ? localStorage : new HashMap<>();
+            this.sessionStorage = sessionStorage != null ? sessionStorage : new HashMap<>();
+        }
+
+        private boolean isExpired() {
+            Date now = new Date();
+            for (Cookie cookie : cookies) {
+                if (cookie.getExpiry() != null && cookie.getExpiry().before(now)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits work into shards of roughly equal duration.
+ *
+ * Items are placed longest first, each onto the shard with the least work so far
+ * (longest-processing-time scheduling), which keeps the slowest shard within a third of
+ * the optimum. The plan is deterministic for the same items and costs, so every machine
+ * of a distributed run computes the same split independently as long as they all read the
+ * same history; {@link #planByKey} splits without one.
+ */
+public final class ShardPlanner {
+
+    private ShardPlanner() {
+    }
+
+    /**
+     * Returns one list per shard. Within a shard, items keep their original relative order.
+     */
+    public static <T> List<List<T>> plan(List<T> items, ToLongFunction<T> cost, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be at least 1 but was " + shards);
+        }
+        long[] costs = items.stream().mapToLong(cost).toArray();
+        List<Integer> longestFirst = IntStream.range(0, items.size()).boxed()
+            .sorted(Comparator.<Integer>comparingLong(i -> costs[i]).reversed().thenComparing(i -> i))
+            .collect(Collectors.toList());
+
+        long[] load = new long[shards];
+        int[] assignment = new int[items.size()];
+        for (int item : longestFirst) {
+            int lightest = 0;
+            for (int shard = 1; shard < shards; shard++) {
+                if (load[shard] < load[lightest]) {
+                    lightest = shard;
+                }
+            }
+            assignment[item] = lightest;
+            load[lightest] += costs[item];
+        }
+
+        List<List<T>> plan = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            plan.add(new ArrayList<>());
+        }
+        for (int item = 0; item < items.size(); item++) {
+            plan.get(assignment[item]).add(items.get(item));
+        }
+        return plan;
+    }
+
+    /**
+     * Returns one list per shard, placing each item by a stable hash of its key. No durations
+     * are needed and an item's shard does not depend on the other items, so machines that do
+     * not share a history still agree on the split; shards are balanced by count, not duration.
+     * Within a shard, items keep their original relative order.
+     */
+    public static <T> List<List<T>> planByKey(List<T> items, Function<T, String> key, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be at least 1 but was " + shards);
+        }
+        List<List<T>> plan = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            plan.add(new ArrayList<>());
+        }
+        // String.hashCode is fixed by the language specification, so it is the same on every JVM
+        for (T item : items) {
+            plan.get(Math.floorMod(key.apply(item).hashCode(), shards)).add(item);
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the items longest first, ties in their original order. Handing these to a
+     * pool of workers in this order is the same schedule {@link #plan} computes for shards.
+     */
+    public static <T> List<T> longestFirst(List<T> items, ToLongFunction<T> cost) {
+        List<T> ordered = new ArrayList<>(items);
+        ordered.sort(Comparator.comparingLong(cost).reversed());
+        return ordered;
+    }
+
+    /**
+     * Returns how long the slowest of the given number of workers would take.
+     */
+    public static <T> long makespan(List<T> items, ToLongFunction<T> cost, int workers) {
+        return plan(items, cost, workers).stream().mapToLong(shard -> totalCost(shard, cost)).max().orElse(0);
+    }
+
+    public static <T> long totalCost(List<T> items, ToLongFunction<T> cost) {
+        return items.stream().mapToLong(cost).sum();
+    }
+}
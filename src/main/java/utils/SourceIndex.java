@@ -0,0 +1,420 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Which of this project's methods call which, read from the Java sources.
+ *
+ * Methods are identified as {@code Class#method}, with overloads sharing an id and
+ * constructors named after their class. Code outside methods, such as field initializers
+ * and static blocks, is {@code Class#*} and is reached through any method of its class.
+ * Calls are resolved from the sources alone: through class names, declared variable types
+ * and calls within the same class. A call on a receiver whose type cannot be told (a chained
+ * call, say) is taken to reach every indexed method of that name, so the graph may claim
+ * too much but should not miss a call. Calls into libraries are not followed, but a class
+ * that extends or implements a library type, such as a WebDriver listener, is taken to have
+ * all its methods called back once an instance of it is created.
+ */
+public class SourceIndex {
+    private static final Logger log = LoggerFactory.getLogger(SourceIndex.class);
+
+    private static final Pattern TYPE_DECLARATION = Pattern.compile("\\b(?:class|interface|enum)\\s+([A-Z]\\w*)");
+    private static final Pattern SUPERTYPES = Pattern.compile("\\b(?:class|enum)\\s+[A-Z]\\w*([^{;]*)\\{");
+    private static final Pattern GENERICS = Pattern.compile("<[^<>]*>");
+    private static final Pattern METHOD_DECLARATION = Pattern.compile(
+        "(?:^|[;{}])\\s*((?:@\\w+(?:\\s*\\([^)]*\\))?\\s*)*"
+            + "(?:(?:public|protected|private|static|final|synchronized|abstract|default)\\s+)*"
+            + "([\\w.$<>\\[\\],? ]+?\\s+)?(\\w+)\\s*\\([^;{}]*\\)\\s*(?:throws\\s+[\\w.,\\s]+)?\\{)");
+    private static final Pattern VARIABLE = Pattern.compile(
+        "\\b([A-Z]\\w*)(?:<[^<>;]*(?:<[^<>;]*>[^<>;]*)*>)?(?:\\[\\])*\\s+([a-z_]\\w*)\\s*[=;,):]");
+    private static final Pattern NEW = Pattern.compile("\\bnew\\s+([A-Z]\\w*)\\s*[(<]");
+    private static final Pattern REFERENCE = Pattern.compile("\\b(\\w+)::(\\w+)");
+    private static final Pattern QUALIFIED_CALL = Pattern.compile("(\\w+|\\))\\s*\\.\\s*(\\w+)\\s*\\(");
+    private static final Pattern BARE_CALL = Pattern.compile("(?<![\\w.$:])(\\w+)\\s*\\(");
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+        "if", "for", "while", "switch", "catch", "synchronized", "try", "return", "new", "throw", "else", "do",
+        "super", "this", "assert", "case"));
+
+    private final Map<String, SourceFile> files = new HashMap<>();
+    private final Map<String, String> classes = new HashMap<>();
+    private final Map<String, Method> methods = new HashMap<>();
+    private final Map<String, Set<String>> methodsByName = new HashMap<>();
+    private final Map<String, Set<String>> methodsByClass = new HashMap<>();
+    private final Set<String> callbackClasses = new HashSet<>();
+    private final Map<String, Set<String>> classLevelCalls = new HashMap<>();
+    private final Map<String, Set<String>> reachable = new HashMap<>();
+
+    /**
+     * Indexes every {@code .java} file under the given directories, keyed by their path
+     * relative to the working directory.
+     */
+    public static SourceIndex scan(Path... roots) {
+        SourceIndex index = new SourceIndex();
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList())) {
+                    index.add(relativePath(path), new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read sources under " + root, e);
+            }
+        }
+        index.link();
+        log.info("Indexed {} methods in {} source files", index.methods.size(), index.files.size());
+        return index;
+    }
+
+    static String relativePath(Path path) {
+        return Paths.get("").toAbsolutePath().relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    /**
+     * Adds a source file. Calls are resolved by {@link #link()} once every file is added.
+     */
+    void add(String path, String source) {
+        String code = mask(source);
+        SourceFile file = new SourceFile(code);
+        Matcher type = TYPE_DECLARATION.matcher(code);
+        while (type.find()) {
+            if (file.className == null) {
+                file.className = type.group(1);
+            }
+            // Nested types are indexed with the class of their file
+            classes.put(type.group(1), file.className);
+        }
+        Matcher supertypes = SUPERTYPES.matcher(code);
+        while (supertypes.find()) {
+            String clause = supertypes.group(1);
+            while (GENERICS.matcher(clause).find()) {
+                clause = GENERICS.matcher(clause).replaceAll("");
+            }
+            for (String supertype : clause.replaceAll("\\b(?:extends|implements)\\b", ",").split(",")) {
+                if (!supertype.trim().isEmpty()) {
+                    file.supertypes.add(supertype.trim().replaceAll(".*\\.", ""));
+                }
+            }
+        }
+        if (file.className == null) {
+            return;
+        }
+        files.put(path, file);
+
+        StringBuilder classLevel = new StringBuilder(code);
+        Matcher declaration = METHOD_DECLARATION.matcher(code);
+        int searchFrom = 0;
+        while (declaration.find(searchFrom)) {
+            String returnType = declaration.group(2) == null ? "" : declaration.group(2).trim();
+            String name = declaration.group(3);
+            int open = declaration.end() - 1;
+            searchFrom = declaration.end(1);
+            if (KEYWORDS.contains(name) || returnType.matches("(?s).*\\b(new|return|else)\\b.*")
+                || (returnType.isEmpty() && !classes.containsKey(name))) {
+                continue;
+            }
+            int close = matchingBrace(code, open);
+            Method method = new Method(file.className + "#" + name, file,
+                file.lineOf(declaration.start(1)), file.lineOf(close), open, close);
+            file.methods.add(method);
+            methods.merge(method.id, method, Method::mergeWith);
+            methodsByName.computeIfAbsent(name, key -> new TreeSet<>()).add(method.id);
+            methodsByClass.computeIfAbsent(file.className, key -> new TreeSet<>()).add(method.id);
+            blank(classLevel, declaration.start(1), close + 1);
+            // Anonymous classes and lambdas belong to the method they are declared in
+            searchFrom = close;
+        }
+
+        file.classLevelCode = classLevel.toString();
+
+        Matcher variable = VARIABLE.matcher(code);
+        while (variable.find()) {
+            file.variableTypes.put(variable.group(2), variable.group(1));
+        }
+    }
+
+    void link() {
+        // A class extending or implementing a library type is handed to the library, which calls it back
+        callbackClasses.clear();
+        for (SourceFile file : files.values()) {
+            if (file.supertypes.stream().anyMatch(supertype -> !classes.containsKey(supertype))) {
+                callbackClasses.add(file.className);
+            }
+        }
+        for (Method method : methods.values()) {
+            for (int[] span : method.spans) {
+                method.calls.addAll(callsIn(method.file, method.file.code.substring(span[0] + 1, span[1])));
+            }
+        }
+        for (SourceFile file : files.values()) {
+            classLevelCalls.computeIfAbsent(file.className, key -> new LinkedHashSet<>())
+                .addAll(callsIn(file, file.classLevelCode));
+        }
+        reachable.clear();
+    }
+
+    private Set<String> callsIn(SourceFile file, String body) {
+        Set<String> calls = new LinkedHashSet<>();
+        Matcher matcher = NEW.matcher(body);
+        while (matcher.find()) {
+            String className = classes.get(matcher.group(1));
+            addIfIndexed(calls, className, matcher.group(1));
+            if (className != null) {
+                calls.add(className + "#*");
+            }
+            if (callbackClasses.contains(className)) {
+                calls.addAll(methodsByClass.getOrDefault(className, Collections.emptySet()));
+            }
+        }
+        matcher = REFERENCE.matcher(body);
+        while (matcher.find()) {
+            String name = matcher.group(2).equals("new") ? matcher.group(1) : matcher.group(2);
+            resolveQualified(calls, file, matcher.group(1), name);
+        }
+        matcher = QUALIFIED_CALL.matcher(body);
+        while (matcher.find()) {
+            resolveQualified(calls, file, matcher.group(1), matcher.group(2));
+            // Resume after the method name, so a call chained onto its result is found as well
+            matcher.region(matcher.end(2), body.length());
+        }
+        matcher = BARE_CALL.matcher(body);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            boolean constructed = body.substring(Math.max(0, matcher.start() - 8), matcher.start())
+                .matches("(?s).*\\bnew\\s+");
+            if (!KEYWORDS.contains(name) && !constructed) {
+                addIfIndexed(calls, file.className, name);
+            }
+        }
+        return calls;
+    }
+
+    private void resolveQualified(Set<String> calls, SourceFile file, String receiver, String name) {
+        if (receiver.equals("this")) {
+            addIfIndexed(calls, file.className, name);
+        } else if (receiver.equals("super")) {
+            return;
+        } else if (classes.containsKey(receiver)) {
+            addIfIndexed(calls, classes.get(receiver), name);
+        } else if (file.variableTypes.containsKey(receiver)) {
+            // Only types of this project are followed; a library type's methods are not indexed
+            addIfIndexed(calls, classes.get(file.variableTypes.get(receiver)), name);
+        } else if (!Character.isUpperCase(receiver.charAt(0))) {
+            calls.addAll(methodsByName.getOrDefault(name, Collections.emptySet()));
+        }
+    }
+
+    private void addIfIndexed(Set<String> calls, String className, String name) {
+        if (className != null && methods.containsKey(className + "#" + name)) {
+            calls.add(className + "#" + name);
+        }
+    }
+
+    public boolean contains(String path) {
+        return files.containsKey(path);
+    }
+
+    public boolean hasMethod(String id) {
+        return methods.containsKey(id);
+    }
+
+    /**
+     * Returns the methods whose lines include any of the given lines of a source file, or
+     * all of its methods when {@code lines} is empty. A changed line outside every method,
+     * such as a field or an import, is reported as {@code Class#*}.
+     */
+    public Set<String> methodsAt(String path, Set<Integer> lines) {
+        SourceFile file = files.get(path);
+        Set<String> changed = new TreeSet<>();
+        if (file == null) {
+            return changed;
+        }
+        if (lines.isEmpty()) {
+            file.methods.forEach(method -> changed.add(method.id));
+            changed.add(file.className + "#*");
+            return changed;
+        }
+        for (int line : lines) {
+            boolean inMethod = false;
+            for (Method method : file.methods) {
+                if (line >= method.firstLine && line <= method.lastLine) {
+                    changed.add(method.id);
+                    inMethod = true;
+                }
+            }
+            if (!inMethod) {
+                changed.add(file.className + "#*");
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the method and every indexed method it may call, directly or indirectly.
+     */
+    public Set<String> reachableFrom(String id) {
+        Set<String> cached = reachable.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        Set<String> seen = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>(Collections.singleton(id));
+        while (!pending.isEmpty()) {
+            String next = pending.pop();
+            String className = next.substring(0, next.indexOf('#'));
+            if (next.endsWith("#*")) {
+                if (seen.add(next)) {
+                    pending.addAll(classLevelCalls.getOrDefault(className, Collections.emptySet()));
+                }
+            } else if (methods.containsKey(next) && seen.add(next)) {
+                pending.addAll(methods.get(next).calls);
+                // Using a class runs its initializers
+                pending.add(className + "#*");
+            }
+        }
+        Set<String> result = Collections.unmodifiableSet(seen);
+        reachable.put(id, result);
+        return result;
+    }
+
+    /**
+     * Returns the first of the changed ids, in call order, that the method may reach.
+     */
+    public String firstChangeReachedFrom(String id, Set<String> changed) {
+        return reachableFrom(id).stream().filter(changed::contains).findFirst().orElse(null);
+    }
+
+    /**
+     * Blanks out comments and the contents of string and character literals, keeping line
+     * breaks, so braces and parentheses inside them do not count.
+     */
+    static String mask(String source) {
+        StringBuilder code = new StringBuilder(source);
+        int i = 0;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            char next = i + 1 < code.length() ? code.charAt(i + 1) : 0;
+            int end;
+            if (c == '/' && next == '/') {
+                end = indexOrLength(code, "\n", i);
+                blank(code, i, end);
+            } else if (c == '/' && next == '*') {
+                end = indexOrLength(code, "*/", i + 2) + 2;
+                blank(code, i, Math.min(end, code.length()));
+            } else if (c == '"' && code.indexOf("\"\"\"", i) == i) {
+                end = indexOrLength(code, "\"\"\"", i + 3) + 3;
+                blank(code, i + 3, Math.min(end - 3, code.length()));
+            } else if (c == '"' || c == '\'') {
+                end = i + 1;
+                while (end < code.length() && code.charAt(end) != c && code.charAt(end) != '\n') {
+                    end += code.charAt(end) == '\\' ? 2 : 1;
+                }
+                blank(code, i + 1, Math.min(end, code.length()));
+                end++;
+            } else {
+                end = i + 1;
+            }
+            i = end;
+        }
+        return code.toString();
+    }
+
+    private static int indexOrLength(StringBuilder code, String text, int from) {
+        int index = code.indexOf(text, from);
+        return index < 0 ? code.length() : index;
+    }
+
+    private static void blank(StringBuilder code, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (code.charAt(i) != '\n') {
+                code.setCharAt(i, ' ');
+            }
+        }
+    }
+
+    private static int matchingBrace(String code, int open) {
+        int depth = 0;
+        for (int i = open; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return code.length() - 1;
+    }
+
+    private static final class SourceFile {
+        private final String code;
+        private final int[] lineStarts;
+        private final List<Method> methods = new ArrayList<>();
+        private final Map<String, String> variableTypes = new HashMap<>();
+        private final Set<String> supertypes = new HashSet<>();
+        private String className;
+        private String classLevelCode;
+
+        private SourceFile(String code) {
+            this.code = code;
+            List<Integer> starts = new ArrayList<>(Collections.singletonList(0));
+            for (int i = 0; i < code.length(); i++) {
+                if (code.charAt(i) == '\n') {
+                    starts.add(i + 1);
+                }
+            }
+            this.lineStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int lineOf(int offset) {
+            int index = Arrays.binarySearch(lineStarts, offset);
+            return (index >= 0 ? index : -index - 2) + 1;
+        }
+    }
+
+    private static final class Method {
+        private final String id;
+        private final SourceFile file;
+        private final int firstLine;
+        private final int lastLine;
+        private final List<int[]> spans = new ArrayList<>();
+        private final Set<String> calls = new LinkedHashSet<>();
+
+        private Method(String id, SourceFile file, int firstLine, int lastLine, int open, int close) {
+            this.id = id;
+            this.file = file;
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
+            spans.add(new int[]{open, close});
+        }
+
+        // Overloads share an id, so they share their calls
+        private Method mergeWith(Method overload) {
+            spans.addAll(overload.spans);
+            return this;
+        }
+    }
+}
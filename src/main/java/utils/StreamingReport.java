@@ -0,0 +1,277 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Running summary of scenario results streamed as NDJSON, one finished scenario per line.
+ *
+ * Only what the summary shows is kept: each scenario's latest status, the error of those
+ * currently failing, and counts per status and feature. A rerun replaces the scenario's earlier
+ * result. Lines can be fed one at a time, read as they are appended to a file by another JVM,
+ * or merged from several files, so reports of any size are never held in memory as a whole.
+ */
+public class StreamingReport {
+    private static final Logger log = LoggerFactory.getLogger(StreamingReport.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final List<String> STATUSES = List.of("PASSED", "FAILED", "SKIPPED", "PENDING", "UNDEFINED",
+        "AMBIGUOUS");
+
+    private final Map<String, Result> results = new HashMap<>();
+    private final Map<String, Map<String, Integer>> features = new TreeMap<>();
+    private final Map<String, Integer> counts = new TreeMap<>();
+    private final Map<Path, Long> offsets = new HashMap<>();
+    private long durationMillis;
+    private int lines;
+
+    /**
+     * Adds one finished scenario.
+     */
+    public synchronized void add(JsonNode scenario) {
+        String key = ScenarioHistory.key(scenario.path("uri").asText(), scenario.path("line").asInt());
+        String feature = scenario.path("feature").asText(key);
+        Result result = new Result(feature, scenario.path("scenario").asText(), scenario.path("status").asText(),
+            scenario.path("error").asText(null));
+        Result previous = results.put(key, result);
+        if (previous != null) {
+            count(previous, -1);
+        }
+        count(result, 1);
+        durationMillis += scenario.path("durationMs").asLong();
+        lines++;
+    }
+
+    private void count(Result result, int delta) {
+        counts.merge(result.status, delta, Integer::sum);
+        features.computeIfAbsent(result.feature, key -> new TreeMap<>()).merge(result.status, delta, Integer::sum);
+    }
+
+    /**
+     * Adds the complete lines appended to the file since the last call. A line still being
+     * written is left for the next call.
+     */
+    public synchronized void follow(Path file) {
+        long offset = offsets.getOrDefault(file, 0L);
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            if (channel.size() <= offset) {
+                return;
+            }
+            channel.position(offset);
+            ByteArrayOutputStream appended = new ByteArrayOutputStream();
+            try (InputStream in = Channels.newInputStream(channel)) {
+                in.transferTo(appended);
+            }
+            byte[] bytes = appended.toByteArray();
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                addLine(line);
+            }
+            offsets.put(file, offset + end);
+        } catch (IOException e) {
+            log.debug("Could not read {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void addLine(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        try {
+            add(mapper.readTree(line));
+        } catch (IOException e) {
+            log.warn("Skipping unreadable report line: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Merges NDJSON files, each already in the order its scenarios finished, into one file in
+     * finish order, adding every line to this summary on the way. Holds one line per file in
+     * memory at a time. Returns the number of lines written.
+     */
+    public long merge(List<Path> inputs, Path target) throws IOException {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(
+            Comparator.comparingLong((Cursor cursor) -> cursor.finishedAt).thenComparing(cursor -> cursor.index));
+        long written = 0;
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                Cursor cursor = new Cursor(i, Files.newBufferedReader(inputs.get(i), StandardCharsets.UTF_8));
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                } else {
+                    cursor.reader.close();
+                }
+            }
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                Cursor cursor;
+                while ((cursor = cursors.poll()) != null) {
+                    out.write(cursor.line);
+                    out.write('\n');
+                    addLine(cursor.line);
+                    written++;
+                    if (cursor.advance()) {
+                        cursors.add(cursor);
+                    } else {
+                        cursor.reader.close();
+                    }
+                }
+            }
+        } finally {
+            for (Cursor cursor : cursors) {
+                cursor.reader.close();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes the summary as an HTML page. While the run is still going the page reloads
+     * itself every few seconds.
+     */
+    public void writeHtml(Path file, boolean complete) {
+        String html;
+        synchronized (this) {
+            html = render(complete);
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(partial, html, StandardCharsets.UTF_8);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write summary to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private String render(boolean complete) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n");
+        if (!complete) {
+            html.append("<meta http-equiv=\"refresh\" content=\"5\">\n");
+        }
+        html.append("<title>Test Summary</title>\n<style>")
+            .append("body{font-family:sans-serif;margin:2em}table{border-collapse:collapse;margin-bottom:2em}")
+            .append("td,th{border:1px solid #ccc;padding:4px 8px;text-align:left}")
+            .append(".PASSED{color:#2a7d2a}.FAILED{color:#c62828}pre{margin:0;white-space:pre-wrap}")
+            .append("</style>\n</head>\n<body>\n");
+        html.append("<h1>Test Summary").append(complete ? "" : " (running)").append("</h1>\n");
+        html.append("<p>").append(results.size()).append(" scenarios, ").append(lines).append(" runs, ")
+            .append(durationMillis / 1000).append("s of scenario time. Updated ").append(Instant.now()).append(".</p>\n");
+
+        html.append("<table>\n<tr>");
+        for (String status : STATUSES) {
+            html.append("<th class=\"").append(status).append("\">").append(status).append("</th>");
+        }
+        html.append("</tr>\n<tr>");
+        for (String status : STATUSES) {
+            html.append("<td>").append(counts.getOrDefault(status, 0)).append("</td>");
+        }
+        html.append("</tr>\n</table>\n");
+
+        html.append("<h2>Features</h2>\n<table>\n<tr><th>Feature</th>");
+        for (String status : STATUSES) {
+            html.append("<th>").append(status).append("</th>");
+        }
+        html.append("</tr>\n");
+        features.forEach((feature, byStatus) -> {
+            html.append("<tr><td>").append(escape(feature)).append("</td>");
+            for (String status : STATUSES) {
+                html.append("<td>").append(byStatus.getOrDefault(status, 0)).append("</td>");
+            }
+            html.append("</tr>\n");
+        });
+        html.append("</table>\n");
+
+        html.append("<h2>Failures</h2>\n<table>\n<tr><th>Scenario</th><th>Location</th><th>Error</th></tr>\n");
+        new TreeMap<>(results).forEach((key, result) -> {
+            if (result.status.equals("FAILED")) {
+                html.append("<tr><td>").append(escape(result.scenario)).append("</td><td>").append(escape(key))
+                    .append("</td><td><pre>").append(escape(result.error == null ? "" : result.error))
+                    .append("</pre></td></tr>\n");
+            }
+        });
+        html.append("</table>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    public synchronized Map<String, Integer> getCounts() {
+        Map<String, Integer> nonZero = new TreeMap<>(counts);
+        nonZero.values().removeIf(count -> count == 0);
+        return nonZero;
+    }
+
+    public synchronized int getScenarioCount() {
+        return results.size();
+    }
+
+    private static final class Result {
+        private final String feature;
+        private final String scenario;
+        private final String status;
+        private final String error;
+
+        private Result(String feature, String scenario, String status, String error) {
+            this.feature = feature;
+            this.scenario = scenario;
+            this.status = status;
+            this.error = error;
+        }
+    }
+
+    private static final class Cursor {
+        private final int index;
+        private final BufferedReader reader;
+        private String line;
+        private long finishedAt;
+
+        private Cursor(int index, BufferedReader reader) {
+            this.index = index;
+            this.reader = reader;
+        }
+
+        // Only the finish time is read here; the line is parsed once, when it is added
+        private boolean advance() throws IOException {
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return false;
+            }
+            int start = line.indexOf("\"finishedAt\":");
+            int end = start < 0 ? -1 : start + 13;
+            while (end >= 0 && end < line.length() && Character.isDigit(line.charAt(end))) {
+                end++;
+            }
+            finishedAt = start < 0 || end == start + 13 ? 0 : Long.parseLong(line.substring(start + 13, end));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestSourceRead;
+import io.cucumber.plugin.event.TestStepFinished;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cucumber plugin that streams each finished scenario as one NDJSON line and keeps an HTML
+ * summary of the run up to date while it runs. Takes the output directory as its argument,
+ * e.g. {@code utils.StreamingReportPlugin:target/cucumber-reports/stream}.
+ *
+ * Each JVM appends to its own {@code scenarios-<pid>.ndjson}, so threads and forks never
+ * write to the same file, and {@link StreamingReport#merge} can combine them afterwards.
+ * Files left there by JVMs that are no longer running are removed before the first line.
+ */
+public class StreamingReportPlugin implements ConcurrentEventListener {
+    private static final Logger log = LoggerFactory.getLogger(StreamingReportPlugin.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern FEATURE_NAME = Pattern.compile("(?m)^\\s*Feature:\\s*(.+?)\\s*$");
+    private static final long SUMMARY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path directory;
+    private final Path file;
+    private final StreamingReport summary = new StreamingReport();
+    private final Map<URI, String> featureNames = new ConcurrentHashMap<>();
+    private final Map<UUID, Run> runs = new ConcurrentHashMap<>();
+    private BufferedWriter out;
+    private long summaryWrittenAt;
+
+    public StreamingReportPlugin(String directory) {
+        this.directory = Paths.get(directory);
+        this.file = this.directory.resolve("scenarios-" + ProcessHandle.current().pid() + ".ndjson");
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestSourceRead.class, this::onSourceRead);
+        publisher.registerHandlerFor(TestCaseStarted.class, this::onCaseStarted);
+        publisher.registerHandlerFor(TestStepFinished.class, this::onStepFinished);
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, event -> finish());
+    }
+
+    private void onSourceRead(TestSourceRead event) {
+        Matcher name = FEATURE_NAME.matcher(event.getSource());
+        if (name.find()) {
+            featureNames.put(event.getUri(), name.group(1));
+        }
+    }
+
+    private void onCaseStarted(TestCaseStarted event) {
+        runs.put(event.getTestCase().getId(), new Run(event.getInstant()));
+    }
+
+    private void onStepFinished(TestStepFinished event) {
+        Run run = runs.get(event.getTestCase().getId());
+        if (run == null) {
+            return;
+        }
+        ObjectNode step = run.steps.addObject();
+        if (event.getTestStep() instanceof PickleStepTestStep) {
+            PickleStepTestStep pickleStep = (PickleStepTestStep) event.getTestStep();
+            step.put("step", pickleStep.getStep().getKeyword().trim() + " " + pickleStep.getStep().getText());
+            step.put("line", pickleStep.getStep().getLine());
+        } else if (event.getTestStep() instanceof HookTestStep) {
+            step.put("step", "hook " + ((HookTestStep) event.getTestStep()).getHookType());
+        }
+        step.put("status", event.getResult().getStatus().name());
+        step.put("durationMs", event.getResult().getDuration().toMillis());
+    }
+
+    private void onCaseFinished(TestCaseFinished event) {
+        TestCase testCase = event.getTestCase();
+        Run run = runs.remove(testCase.getId());
+        Result result = event.getResult();
+
+        // The finish time comes first so merging can order lines without parsing them
+        ObjectNode line = mapper.createObjectNode();
+        line.put("finishedAt", event.getInstant().toEpochMilli());
+        line.put("uri", testCase.getUri().toString());
+        line.put("line", testCase.getLocation().getLine());
+        line.put("feature", featureNames.getOrDefault(testCase.getUri(), ""));
+        line.put("scenario", testCase.getName());
+        line.set("tags", mapper.valueToTree(testCase.getTags()));
+        line.put("status", result.getStatus().name());
+        line.put("startedAt", run != null ? run.started.toString() : null);
+        line.put("durationMs", result.getDuration().toMillis());
+        line.put("pid", ProcessHandle.current().pid());
+        line.put("thread", Thread.currentThread().getName());
+        if (result.getError() != null) {
+            line.put("error", String.valueOf(result.getError()));
+        }
+        line.set("steps", run != null ? run.steps : mapper.createArrayNode());
+
+        summary.add(line);
+        try {
+            write(mapper.writeValueAsString(line));
+        } catch (IOException e) {
+            log.warn("Could not append to {}: {}", file, e.getMessage());
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (now - summaryWrittenAt < SUMMARY_INTERVAL_NANOS) {
+                return;
+            }
+            summaryWrittenAt = now;
+        }
+        summary.writeHtml(directory.resolve("summary.html"), false);
+    }
+
+    // Flushed per line so a reader sees each scenario as soon as it finishes
+    private synchronized void write(String json) throws IOException {
+        if (out == null) {
+            Files.createDirectories(directory);
+            removeStaleStreams();
+            out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+        out.write(json);
+        out.write('\n');
+        out.flush();
+    }
+
+    private void removeStaleStreams() throws IOException {
+        try (DirectoryStream<Path> streams = Files.newDirectoryStream(directory, "scenarios-*.ndjson")) {
+            for (Path stream : streams) {
+                String name = stream.getFileName().toString();
+                String pid = name.substring("scenarios-".length(), name.length() - ".ndjson".length());
+                if (!stream.equals(file) && !isRunning(pid)) {
+                    Files.deleteIfExists(stream);
+                }
+            }
+        }
+    }
+
+    private static boolean isRunning(String pid) {
+        try {
+            return ProcessHandle.of(Long.parseLong(pid)).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private synchronized void finish() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Could not close {}: {}", file, e.getMessage());
+            }
+            out = null;
+        }
+        summary.writeHtml(directory.resolve("summary.html"), true);
+        log.info("Scenario stream written to {}: {}", file, summary.getCounts());
+    }
+
+    private static final class Run {
+        private final Instant started;
+        private final ArrayNode steps = mapper.createArrayNode();
+
+        private Run(Instant started) {
+            this.started = started;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * WebDriverWait that records the time spent in each {@link #until} as the {@code wait.until}
+ * phase, so polling waits count towards wait time alongside {@link ConditionWait}.
+ */
+public class TimedWait extends WebDriverWait {
+
+    public TimedWait(WebDriver driver, Duration timeout) {
+        super(driver, timeout);
+    }
+
+    @Override
+    public <V> V until(Function<? super WebDriver, V> isTrue) {
+        long started = System.nanoTime();
+        try {
+            return super.until(isTrue);
+        } finally {
+            CommandMetrics.recordPhase("wait.until", System.nanoTime() - started);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Client-side behaviour of the stand-in application: login rules, the inventory,
+ * the cart (kept in localStorage as on the real site) and the side menu.
+ */
+var SwagLabs = (function () {
+    var PASSWORD = 'secret_sauce';
+    var USERS = ['standard_user', 'locked_out_user', 'problem_user', 'performance_glitch_user', 'error_user', 'visual_user'];
+    var PRODUCTS = [
+        {id: 4, slug: 'sauce-labs-backpack', name: 'Sauce Labs Backpack', price: '$29.99'},
+        {id: 0, slug: 'sauce-labs-bike-light', name: 'Sauce Labs Bike Light', price: '$9.99'},
+        {id: 1, slug: 'sauce-labs-bolt-t-shirt', name: 'Sauce Labs Bolt T-Shirt', price: '$15.99'},
+        {id: 5, slug: 'sauce-labs-fleece-jacket', name: 'Sauce Labs Fleece Jacket', price: '$49.99'},
+        {id: 2, slug: 'sauce-labs-onesie', name: 'Sauce Labs Onesie', price: '$7.99'},
+        {id: 3, slug: 'test.allthethings()-t-shirt-(red)', name: 'Test.allTheThings() T-Shirt (Red)', price: '$15.99'}
+    ];
+    var CART_KEY = 'cart-contents';
+    var SESSION_COOKIE = 'session-username';
+
+    function currentUser() {
+        var match = document.cookie.match(new RegExp('(?:^|; )' + SESSION_COOKIE + '=([^;]*)'));
+        return match ? decodeURIComponent(match[1]) : null;
+    }
+
+    function cart() {
+        try {
+            return JSON.parse(localStorage.getItem(CART_KEY)) || [];
+        } catch (e) {
+            return [];
+        }
+    }
+
+    function saveCart(contents) {
+        if (contents.length) {
+            localStorage.setItem(CART_KEY, JSON.stringify(contents));
+        } else {
+            localStorage.removeItem(CART_KEY);
+        }
+    }
+
+    function toggle(id) {
+        var contents = cart();
+        var index = contents.indexOf(id);
+        if (index === -1) {
+            contents.push(id);
+        } else {
+            contents.splice(index, 1);
+        }
+        saveCart(contents);
+        return index === -1;
+    }
+
+    function escapeHtml(text) {
+        return text.replace(/&/g, '&amp;').replace(/</g, '&lt;').replace(/>/g, '&gt;');
+    }
+
+    function renderBadge() {
+        var count = cart().length;
+        document.querySelector('.shopping_cart_link').innerHTML =
+            count ? '<span class="shopping_cart_badge" data-test="shopping-cart-badge">' + count + '</span>' : '';
+    }
+
+    function renderButton(button, product, inCart) {
+        var id = (inCart ? 'remove-' : 'add-to-cart-') + product.slug;
+        button.className = 'btn btn_small btn_inventory ' + (inCart ? 'btn_secondary' : 'btn_primary');
+        button.id = id;
+        button.name = id;
+        button.setAttribute('data-test', id);
+        button.setAttribute('data-id', product.id);
+        button.textContent = inCart ? 'Remove' : 'Add to cart';
+    }
+
+    function requireLogin() {
+        if (currentUser() === null) {
+            sessionStorage.setItem('login-error', "Epic sadface: You can only access '" + location.pathname + "' when you are logged in.");
+            location.replace('/');
+            return false;
+        }
+        return true;
+    }
+
+    function initMenu() {
+        var menu = document.querySelector('.bm-menu-wrap');
+        document.querySelector('.bm-burger-button').addEventListener('click', function () {
+            menu.classList.add('open');
+        });
+        document.getElementById('react-burger-cross-btn').addEventListener('click', function () {
+            menu.classList.remove('open');
+        });
+        document.getElementById('logout_sidebar_link').addEventListener('click', function (event) {
+            event.preventDefault();
+            document.cookie = SESSION_COOKIE + '=; path=/; expires=Thu, 01 Jan 1970 00:00:00 GMT';
+            localStorage.removeItem(CART_KEY);
+            location.href = '/';
+        });
+        document.getElementById('reset_sidebar_link').addEventListener('click', function (event) {
+            event.preventDefault();
+            localStorage.removeItem(CART_KEY);
+            location.reload();
+        });
+    }
+
+    function showLoginError(message) {
+        document.querySelector('.error-message-container').innerHTML =
+            '<h3 data-test="error">' + escapeHtml(message) + '</h3>';
+    }
+
+    function initLogin() {
+        var pending = sessionStorage.getItem('login-error');
+        if (pending) {
+            sessionStorage.removeItem('login-error');
+            showLoginError(pending);
+        }
+        document.getElementById('login_form').addEventListener('submit', function (event) {
+            event.preventDefault();
+            var username = document.getElementById('user-name').value;
+            var password = document.getElementById('password').value;
+            if (!username) {
+                showLoginError('Epic sadface: Username is required');
+            } else if (!password) {
+                showLoginError('Epic sadface: Password is required');
+            } else if (USERS.indexOf(username) === -1 || password !== PASSWORD) {
+                showLoginError('Epic sadface: Username and password do not match any user in this service');
+            } else if (username === 'locked_out_user') {
+                showLoginError('Epic sadface: Sorry, this user has been locked out.');
+            } else {
+                document.cookie = SESSION_COOKIE + '=' + encodeURIComponent(username) + '; path=/';
+                location.href = '/inventory.html';
+            }
+        });
+    }
+
+    function initInventory() {
+        if (!requireLogin()) {
+            return;
+        }
+        initMenu();
+        var contents = cart();
+        var list = document.querySelector('.inventory_list');
+        PRODUCTS.forEach(function (product) {
+            var item = document.createElement('div');
+            item.className = 'inventory_item';
+            item.innerHTML =
+                '<div class="inventory_item_name" data-test="inventory-item-name">' + escapeHtml(product.name) + '</div>' +
+                '<div class="pricebar">' +
+                '<div class="inventory_item_price" data-test="inventory-item-price">' + product.price + '</div>' +
+                '<button></button>' +
+                '</div>';
+            renderButton(item.querySelector('button'), product, contents.indexOf(product.id) !== -1);
+            list.appendChild(item);
+        });
+        list.addEventListener('click', function (event) {
+            var button = event.target.closest('.btn_inventory');
+            if (!button) {
+                return;
+            }
+            var id = parseInt(button.getAttribute('data-id'), 10);
+            var product = PRODUCTS.filter(function (p) { return p.id === id; })[0];
+            renderButton(button, product, toggle(id));
+            renderBadge();
+        });
+        renderBadge();
+    }
+
+    function initCart() {
+        if (!requireLogin()) {
+            return;
+        }
+        initMenu();
+        var list = document.querySelector('.cart_list');
+        cart().forEach(function (id) {
+            var product = PRODUCTS.filter(function (p) { return p.id === id; })[0];
+            if (!product) {
+                return;
+            }
+            var item = document.createElement('div');
+            item.className = 'cart_item';
+            item.innerHTML =
+                '<div class="cart_quantity" data-test="item-quantity">1</div>' +
+                '<div class="inventory_item_name" data-test="inventory-item-name">' + escapeHtml(product.name) + '</div>' +
+                '<div class="inventory_item_price" data-test="inventory-item-price">' + product.price + '</div>' +
+                '<button class="btn btn_secondary btn_small cart_button" data-test="remove-' + product.slug + '">Remove</button>';
+            item.querySelector('button').addEventListener('click', function () {
+                toggle(id);
+                list.removeChild(item);
+                renderBadge();
+            });
+            list.appendChild(item);
+        });
+        renderBadge();
+    }
+
+    return {
+        initLogin: initLogin,
+        initInventory: initInventory,
+        initCart: initCart
+    };
+})();
@@ -0,0 +1,349 @@
+package runners;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cucumber.cucumberexpressions.Expression;
+import io.cucumber.cucumberexpressions.ExpressionFactory;
+import io.cucumber.cucumberexpressions.ParameterTypeRegistry;
+import io.cucumber.gherkin.GherkinParser;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.messages.types.GherkinDocument;
+import io.cucumber.messages.types.Pickle;
+import io.cucumber.messages.types.PickleStep;
+import io.cucumber.messages.types.PickleTag;
+import io.cucumber.messages.types.Scenario;
+import io.cucumber.tagexpressions.TagExpressionParser;
+import io.cucumber.testng.CucumberOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.GitDiff;
+import utils.ScenarioHistory;
+import utils.SourceIndex;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Chooses the scenarios that a change to the working tree can affect.
+ *
+ * Each scenario step is matched to its step definitions in the glue packages, and through
+ * {@link SourceIndex} to every method of this project that the definition may call. A
+ * scenario runs when one of its steps reaches a method changed since the base revision,
+ * when its feature file changed, when a step has no definition, or when its tags match the
+ * baseline. Everything runs when a hook reaches a change, or when a file changed that is
+ * not traced this way (the build, resources, the runners).
+ */
+public class ImpactSelector {
+    private static final Logger log = LoggerFactory.getLogger(ImpactSelector.class);
+    private static final Path MAIN_SOURCES = Paths.get("src", "main", "java");
+    private static final Path TEST_SOURCES = Paths.get("src", "test", "java");
+    // Changes that cannot affect a scenario; entries ending in '/' are directories
+    private static final List<String> IGNORED = Arrays.asList(
+        ".md", ".gitignore", "Jenkinsfile", "docker-compose.yml", "benchmarks/", "src/test/java/utils/");
+
+    private final String base;
+    private final Map<String, Set<Integer>> changedFiles;
+    private final Set<String> changedFeatures = new TreeSet<>();
+    private final Set<String> changedMethods = new TreeSet<>();
+    private final Map<String, Outcome> outcomes = new LinkedHashMap<>();
+    private String runAllReason;
+
+    private ImpactSelector(String base, Map<String, Set<Integer>> changedFiles) {
+        this.base = base;
+        this.changedFiles = changedFiles;
+    }
+
+    /**
+     * Selects among the scenarios and glue of {@link TestRunner}, honouring
+     * {@code cucumber.features} when it is set.
+     */
+    public static ImpactSelector select(String base, String baselineTags) {
+        CucumberOptions options = TestRunner.class.getAnnotation(CucumberOptions.class);
+        String features = System.getProperty("cucumber.features", String.join(",", options.features()));
+        List<Path> featurePaths = Arrays.stream(features.split(","))
+            .map(String::trim)
+            .filter(path -> !path.isEmpty())
+            .map(Paths::get)
+            .collect(Collectors.toList());
+        return select(base, GitDiff.changedSince(base), baselineTags, featurePaths, Arrays.asList(options.glue()));
+    }
+
+    static ImpactSelector select(String base, Map<String, Set<Integer>> changedFiles, String baselineTags,
+                                 List<Path> features, List<String> gluePackages) {
+        List<Path> sourceRoots = new ArrayList<>(Collections.singletonList(MAIN_SOURCES));
+        gluePackages.forEach(glue -> sourceRoots.add(TEST_SOURCES.resolve(glue.replace('.', '/'))));
+        SourceIndex index = SourceIndex.scan(sourceRoots.toArray(new Path[0]));
+        Glue glue = Glue.load(gluePackages);
+
+        ImpactSelector selector = new ImpactSelector(base, changedFiles);
+        selector.findChanges(index, glue);
+        io.cucumber.tagexpressions.Expression baseline = baselineTags.trim().isEmpty()
+            ? null : TagExpressionParser.parse(baselineTags);
+        for (ScenarioSteps scenario : ScenarioSteps.parse(features)) {
+            String reason = selector.reasonToRun(scenario, index, glue);
+            if (reason == null && baseline != null && baseline.evaluate(scenario.tags)) {
+                reason = "matches baseline tags " + baselineTags.trim();
+            }
+            selector.outcomes.put(scenario.key, reason != null
+                ? new Outcome(scenario.name, true, reason)
+                : new Outcome(scenario.name, false, "none of its " + scenario.steps.size() + " steps reach a changed method"));
+        }
+        selector.logSummary();
+        return selector;
+    }
+
+    private void findChanges(SourceIndex index, Glue glue) {
+        changedFiles.forEach((path, lines) -> {
+            if (IGNORED.stream().anyMatch(ignored -> ignored.endsWith("/") ? path.startsWith(ignored) : path.endsWith(ignored))) {
+                return;
+            }
+            if (path.endsWith(".feature")) {
+                changedFeatures.add(path);
+            } else if (index.contains(path)) {
+                changedMethods.addAll(index.methodsAt(path, lines));
+            } else if (runAllReason == null) {
+                runAllReason = path + " changed, which is not traced to scenarios";
+            }
+        });
+        for (String hook : glue.hooks) {
+            String change = index.firstChangeReachedFrom(hook, changedMethods);
+            if (change != null && runAllReason == null) {
+                runAllReason = "hook " + hook + " reaches changed " + change;
+            }
+        }
+    }
+
+    private String reasonToRun(ScenarioSteps scenario, SourceIndex index, Glue glue) {
+        if (runAllReason != null) {
+            return runAllReason;
+        }
+        if (changedFeatures.contains(scenario.featurePath)) {
+            return "its feature file changed";
+        }
+        for (String step : scenario.steps) {
+            List<String> definitions = glue.definitionsOf(step);
+            if (definitions.isEmpty()) {
+                return "step '" + step + "' has no step definition";
+            }
+            for (String definition : definitions) {
+                String change = index.firstChangeReachedFrom(definition, changedMethods);
+                if (change != null) {
+                    return "step '" + step + "' reaches changed " + change + " through " + definition;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void logSummary() {
+        long running = outcomes.values().stream().filter(outcome -> outcome.run).count();
+        log.info("Impact of changes since {}: {} changed files, {} changed methods; running {} of {} scenarios",
+            base, changedFiles.size(), changedMethods.size(), running, outcomes.size());
+        if (runAllReason != null) {
+            log.info("Running every scenario: {}", runAllReason);
+        }
+        outcomes.forEach((key, outcome) -> {
+            if (!outcome.run) {
+                log.info("Skipping {} ({}): {}", outcome.name, key, outcome.reason);
+            }
+        });
+    }
+
+    /**
+     * Returns whether the scenario with the given key should run; scenarios the selector did
+     * not see run.
+     */
+    public boolean shouldRun(String key) {
+        Outcome outcome = outcomes.get(key);
+        return outcome == null || outcome.run;
+    }
+
+    /**
+     * Writes the changes found and each scenario's outcome with its reason.
+     */
+    public void writeReport(Path report) throws IOException {
+        List<Map<String, Object>> selected = new ArrayList<>();
+        List<Map<String, Object>> skipped = new ArrayList<>();
+        outcomes.forEach((key, outcome) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("scenario", outcome.name);
+            entry.put("key", key);
+            entry.put("reason", outcome.reason);
+            (outcome.run ? selected : skipped).add(entry);
+        });
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("base", base);
+        document.put("changedFiles", changedFiles.keySet());
+        document.put("changedMethods", changedMethods);
+        document.put("runAll", runAllReason);
+        document.put("selected", selected);
+        document.put("skipped", skipped);
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(report.toFile(), document);
+    }
+
+    private static final class Outcome {
+        private final String name;
+        private final boolean run;
+        private final String reason;
+
+        private Outcome(String name, boolean run, String reason) {
+            this.name = name;
+            this.run = run;
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * The step definitions and hooks of the glue classes, as {@link SourceIndex} method ids.
+     * Glue constructors count as hooks, since every scenario runs them.
+     */
+    private static final class Glue {
+        private final Map<String, List<Expression>> definitions = new LinkedHashMap<>();
+        private final Set<String> hooks = new TreeSet<>();
+        private final Map<String, List<String>> matches = new HashMap<>();
+
+        private static Glue load(List<String> packages) {
+            Glue glue = new Glue();
+            ExpressionFactory expressions = new ExpressionFactory(new ParameterTypeRegistry(Locale.ENGLISH));
+            for (String glueClass : classesIn(packages)) {
+                Class<?> type;
+                try {
+                    type = Class.forName(glueClass);
+                } catch (ClassNotFoundException e) {
+                    log.warn("Glue class {} is not compiled, its steps count as undefined", glueClass);
+                    continue;
+                }
+                String name = type.getSimpleName();
+                glue.hooks.add(name + "#" + name);
+                for (Method method : type.getDeclaredMethods()) {
+                    for (Annotation annotation : method.getAnnotations()) {
+                        String annotationPackage = annotation.annotationType().getPackage().getName();
+                        String id = name + "#" + method.getName();
+                        if (annotationPackage.equals("io.cucumber.java")) {
+                            glue.hooks.add(id);
+                        } else if (annotationPackage.startsWith("io.cucumber.java.")) {
+                            glue.addDefinition(id, annotation, expressions);
+                        }
+                    }
+                }
+            }
+            return glue;
+        }
+
+        private static List<String> classesIn(List<String> packages) {
+            List<String> classes = new ArrayList<>();
+            for (String glue : packages) {
+                Path directory = TEST_SOURCES.resolve(glue.replace('.', '/'));
+                if (!Files.isDirectory(directory)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(directory)) {
+                    files.map(file -> file.getFileName().toString())
+                        .filter(file -> file.endsWith(".java"))
+                        .sorted()
+                        .forEach(file -> classes.add(glue + "." + file.substring(0, file.length() - ".java".length())));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not list glue sources in " + directory, e);
+                }
+            }
+            return classes;
+        }
+
+        private void addDefinition(String id, Annotation annotation, ExpressionFactory expressions) {
+            try {
+                String expression = (String) annotation.annotationType().getMethod("value").invoke(annotation);
+                definitions.computeIfAbsent(id, key -> new ArrayList<>()).add(expressions.createExpression(expression));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.warn("Could not read the step expression of {}, its steps count as undefined: {}", id, e.getMessage());
+            }
+        }
+
+        private List<String> definitionsOf(String step) {
+            return matches.computeIfAbsent(step, text -> definitions.entrySet().stream()
+                .filter(definition -> definition.getValue().stream().anyMatch(expression -> expression.match(text) != null))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * A scenario, or an example row of an outline, with its steps including the background.
+     */
+    private static final class ScenarioSteps {
+        private final String key;
+        private final String featurePath;
+        private final String name;
+        private final List<String> steps;
+        private final List<String> tags;
+
+        private ScenarioSteps(String featurePath, int line, Pickle pickle) {
+            this.key = ScenarioHistory.key(featurePath, line);
+            this.featurePath = featurePath;
+            this.name = pickle.getName();
+            this.steps = pickle.getSteps().stream().map(PickleStep::getText).collect(Collectors.toList());
+            this.tags = pickle.getTags().stream().map(PickleTag::getName).collect(Collectors.toList());
+        }
+
+        private static List<ScenarioSteps> parse(List<Path> features) {
+            GherkinParser parser = GherkinParser.builder()
+                .includeSource(false)
+                .includeGherkinDocument(true)
+                .includePickles(true)
+                .build();
+            List<ScenarioSteps> scenarios = new ArrayList<>();
+            for (Path root : features) {
+                try (Stream<Path> files = Files.walk(root)) {
+                    for (Path file : files.filter(path -> path.toString().endsWith(".feature")).sorted().collect(Collectors.toList())) {
+                        String featurePath = ScenarioHistory.featurePath(file.toAbsolutePath().toUri().toString());
+                        Map<String, Long> lines = new HashMap<>();
+                        try (Stream<Envelope> envelopes = parser.parse(file)) {
+                            for (Envelope envelope : envelopes.collect(Collectors.toList())) {
+                                envelope.getGherkinDocument().ifPresent(document -> addLines(document, lines));
+                                envelope.getPickle().ifPresent(pickle -> {
+                                    List<String> nodes = pickle.getAstNodeIds();
+                                    Long line = lines.get(nodes.get(nodes.size() - 1));
+                                    scenarios.add(new ScenarioSteps(featurePath, line == null ? 0 : line.intValue(), pickle));
+                                });
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not read features under " + root, e);
+                }
+            }
+            return scenarios;
+        }
+
+        // Pickles refer to their scenario and example row by id; their lines are in the document
+        private static void addLines(GherkinDocument document, Map<String, Long> lines) {
+            document.getFeature().ifPresent(feature -> feature.getChildren().forEach(child -> {
+                child.getScenario().ifPresent(scenario -> addLines(scenario, lines));
+                child.getRule().ifPresent(rule -> rule.getChildren()
+                    .forEach(ruleChild -> ruleChild.getScenario().ifPresent(scenario -> addLines(scenario, lines))));
+            }));
+        }
+
+        private static void addLines(Scenario scenario, Map<String, Long> lines) {
+            lines.put(scenario.getId(), scenario.getLocation().getLine());
+            scenario.getExamples().forEach(examples -> examples.getTableBody()
+                .forEach(row -> lines.put(row.getId(), row.getLocation().getLine())));
+        }
+    }
+}
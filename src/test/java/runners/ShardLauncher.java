@@ -0,0 +1,242 @@
+package runners;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+import utils.LocalAppServer;
+import utils.ScenarioHistory;
+import utils.StreamingReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the scenarios in several JVMs at once and merges their reports.
+ *
+ * This machine's part of the plan ({@code shard.index} of {@code shard.count}) is split
+ * again across {@code shard.forks} child JVMs, each running {@link TestRunner} in its own
+ * directory under {@code target/shards} so their reports do not collide. When all have
+ * finished, their Cucumber JSON reports are merged into
+ * {@code target/cucumber-reports/cucumber.json} in feature and line order, as a single-JVM
+ * run writes it, which is also the history the next run plans from. While the children run,
+ * {@code target/cucumber-reports/stream/summary.html} shows the scenarios they have finished.
+ */
+public class ShardLauncher {
+    private static final Logger log = LoggerFactory.getLogger(ShardLauncher.class);
+    private static final Path SHARD_ROOT = Paths.get("target", "shards");
+    private static final Path FEATURES = Paths.get("src", "test", "resources", "features");
+    private static final Path REPORT = Paths.get("target", "cucumber-reports", "cucumber.json");
+    private static final Path STREAM = Paths.get("target", "cucumber-reports", "stream");
+    // JVM and Maven internals, the settings each child is given explicitly, impact selection,
+    // which reads sources and git relative to this directory, and the metrics port, which each
+    // child gets its own of
+    private static final List<String> NOT_FORWARDED = Arrays.asList(
+        "java.", "jdk.", "sun.", "os.", "user.", "file.", "line.", "path.", "native.", "stdout.", "stderr.",
+        "maven.", "classworlds.", "library.", "guice.", "shard.", "flaky.history.", "impact.", "metrics.port");
+
+    public static void main(String[] args) throws Exception {
+        ConfigManager config = ConfigManager.getInstance();
+        int forks = config.getShardForks();
+        int shardCount = config.getShardCount() * forks;
+
+        // Every child uses the same stand-in, so it has to outlive all of them
+        LocalAppServer.startIfEnabled();
+
+        List<Path> directories = new ArrayList<>();
+        List<Process> processes = new ArrayList<>();
+        for (int fork = 0; fork < forks; fork++) {
+            int shardIndex = config.getShardIndex() * forks + fork;
+            Path directory = SHARD_ROOT.resolve("shard-" + shardIndex).toAbsolutePath();
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(REPORT));
+            for (Path stream : streamFiles(Collections.singletonList(directory))) {
+                Files.delete(stream);
+            }
+
+            ProcessBuilder builder = new ProcessBuilder(command(config, shardIndex, shardCount))
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("console.log").toFile());
+            log.info("Starting shard {} of {} in {}", shardIndex, shardCount, directory);
+            directories.add(directory);
+            processes.add(builder.start());
+        }
+
+        // The children stream their scenarios as they finish; the summary covers all of them so far
+        StreamingReport progress = new StreamingReport();
+        while (!allExited(processes)) {
+            followStreams(directories, progress);
+            progress.writeHtml(STREAM.resolve("summary.html"), false);
+        }
+
+        int failed = 0;
+        for (int i = 0; i < processes.size(); i++) {
+            int exitCode = processes.get(i).waitFor();
+            log.info("Shard {} finished with exit code {} (output in {})",
+                directories.get(i).getFileName(), exitCode, directories.get(i).resolve("console.log"));
+            if (exitCode != 0) {
+                failed++;
+            }
+        }
+        LocalAppServer.stopShared();
+
+        mergeReports(directories, REPORT);
+        mergeStreams(directories);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static boolean allExited(List<Process> processes) throws InterruptedException {
+        for (Process process : processes) {
+            if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void followStreams(List<Path> shardDirectories, StreamingReport progress) throws IOException {
+        for (Path stream : streamFiles(shardDirectories)) {
+            progress.follow(stream);
+        }
+    }
+
+    private static List<Path> streamFiles(List<Path> shardDirectories) throws IOException {
+        List<Path> streams = new ArrayList<>();
+        for (Path directory : shardDirectories) {
+            Path streamDirectory = directory.resolve(STREAM);
+            if (!Files.isDirectory(streamDirectory)) {
+                continue;
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(streamDirectory, "scenarios-*.ndjson")) {
+                files.forEach(streams::add);
+            }
+        }
+        return streams;
+    }
+
+    /**
+     * Merges the shards' scenario streams into {@code scenarios.ndjson} in the order the
+     * scenarios finished, a line at a time, and writes the final summary beside it.
+     */
+    private static void mergeStreams(List<Path> shardDirectories) throws IOException {
+        StreamingReport summary = new StreamingReport();
+        List<Path> streams = streamFiles(shardDirectories);
+        long lines = summary.merge(streams, STREAM.resolve("scenarios.ndjson"));
+        summary.writeHtml(STREAM.resolve("summary.html"), true);
+        log.info("Merged {} scenario streams ({} scenarios) into {}: {}", streams.size(), lines,
+            STREAM.resolve("scenarios.ndjson"), summary.getCounts());
+    }
+
+    private static List<String> command(ConfigManager config, int shardIndex, int shardCount) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(absoluteClasspath());
+
+        // Pass on settings given to this JVM; the child's working directory differs, so paths become absolute
+        System.getProperties().stringPropertyNames().stream()
+            .filter(key -> NOT_FORWARDED.stream().noneMatch(key::startsWith))
+            .filter(key -> !System.getProperty(key).trim().isEmpty())
+            .sorted()
+            .forEach(key -> command.add("-D" + key + "=" + System.getProperty(key)));
+        command.add("-Dshard.index=" + shardIndex);
+        command.add("-Dshard.count=" + shardCount);
+        command.add("-Dshard.history.file=" + Paths.get(config.getShardHistoryFile()).toAbsolutePath());
+        // Forks of one machine all read its history; across machines it has to be shared explicitly
+        command.add("-Dshard.history.shared=" + (config.getShardCount() == 1 || config.isShardHistoryShared()));
+        command.add("-Dflaky.history.file=" + Paths.get(config.getFlakyHistoryFile()).toAbsolutePath());
+        command.add("-Dcucumber.features=" + FEATURES.toAbsolutePath());
+        if (config.getMetricsPort() > 0) {
+            command.add("-Dmetrics.port=" + (config.getMetricsPort() + 1 + shardIndex % config.getShardForks()));
+        }
+
+        command.add("org.testng.TestNG");
+        command.add("-testclass");
+        command.add(TestRunner.class.getName());
+        command.add("-dataproviderthreadcount");
+        command.add(String.valueOf(config.getThreads()));
+        command.add("-d");
+        command.add("test-output");
+        return command;
+    }
+
+    private static String absoluteClasspath() {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * Merges the shards' Cucumber JSON reports. Features are ordered by path and scenarios
+     * by line, each preceded by its background as Cucumber writes it, and feature URIs are
+     * rewritten relative to this directory.
+     */
+    static void mergeReports(List<Path> shardDirectories, Path target) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, ObjectNode> features = new TreeMap<>();
+        Map<String, List<JsonNode[]>> scenarios = new TreeMap<>();
+
+        for (Path directory : shardDirectories) {
+            Path report = directory.resolve(REPORT);
+            if (!Files.isRegularFile(report)) {
+                log.warn("Shard in {} wrote no report", directory);
+                continue;
+            }
+            for (JsonNode feature : mapper.readTree(report.toFile())) {
+                String path = ScenarioHistory.featurePath(feature.path("uri").asText(), directory);
+                features.computeIfAbsent(path, key -> {
+                    ObjectNode copy = ((ObjectNode) feature).deepCopy();
+                    copy.put("uri", "file:" + key);
+                    copy.remove("elements");
+                    return copy;
+                });
+                List<JsonNode[]> featureScenarios = scenarios.computeIfAbsent(path, key -> new ArrayList<>());
+                JsonNode background = null;
+                for (JsonNode element : feature.path("elements")) {
+                    if (element.path("type").asText().equals("background")) {
+                        background = element;
+                    } else {
+                        featureScenarios.add(new JsonNode[]{background, element});
+                        background = null;
+                    }
+                }
+            }
+        }
+
+        ArrayNode merged = mapper.createArrayNode();
+        for (Map.Entry<String, ObjectNode> feature : features.entrySet()) {
+            ArrayNode elements = feature.getValue().putArray("elements");
+            scenarios.get(feature.getKey()).stream()
+                .sorted(Comparator.comparingInt(pair -> pair[1].path("line").asInt()))
+                .forEach(pair -> {
+                    if (pair[0] != null) {
+                        elements.add(pair[0]);
+                    }
+                    elements.add(pair[1]);
+                });
+            merged.add(feature.getValue());
+        }
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        mapper.writeValue(target.toFile(), merged);
+        log.info("Merged {} shard reports into {}", shardDirectories.size(), target);
+    }
+}
@@ -2,27 +2,206 @@ package runners;
 
 import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
+import io.cucumber.testng.FeatureWrapper;
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestContext;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import utils.ConfigManager;
+import utils.FlakeHistory;
+import utils.LastAttemptReportPlugin;
+import utils.ScenarioWatchdog;
+import utils.ScenarioHistory;
+import utils.ShardPlanner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @CucumberOptions(
     features = "src/test/resources/features",
     glue = {"steps"},
     plugin = {
         "pretty",
-        "html:target/cucumber-reports/html/cucumber-pretty.html",
-        "json:target/cucumber-reports/cucumber.json",
-        "junit:target/cucumber-reports/junit.xml",
-        "rerun:target/cucumber-reports/rerun.txt"
+        // html/cucumber-pretty.html, cucumber.json, junit.xml and rerun.txt, each with a scenario's last attempt only
+        "utils.LastAttemptReportPlugin:target/cucumber-reports",
+        "utils.LatencyReportPlugin:target/cucumber-reports/latency.json",
+        "utils.StreamingReportPlugin:target/cucumber-reports/stream",
+        "utils.LiveMetricsPlugin:target/cucumber-reports/metrics.prom",
+        "utils.ScenarioWatchdog"
     },
     monochrome = true,
     dryRun = false,
     publish = false
 )
 public class TestRunner extends AbstractTestNGCucumberTests {
-    
+    private static final Logger log = LoggerFactory.getLogger(TestRunner.class);
+    private static final ConfigManager config = ConfigManager.getInstance();
+
+    // Read when the class loads, before the json plugin truncates the report it comes from
+    private static final ScenarioHistory history = ScenarioHistory.load(
+        Paths.get(config.getShardHistoryFile()), config.getScenarioDefaultDuration() * 1000L);
+    private static final Path FLAKY_REPORT = Paths.get("target", "cucumber-reports", "flaky.json");
+    private static final Path IMPACT_REPORT = Paths.get("target", "cucumber-reports", "impact.json");
+    private static final FlakeHistory flakes = FlakeHistory.load(Paths.get(config.getFlakyHistoryFile()));
+
+    /**
+     * With adaptive concurrency the thread count comes from the cores rather than -Dthreads, so
+     * the suite's data-provider threads are sized to it before the provider runs.
+     */
+    @BeforeClass(alwaysRun = true)
+    public void sizeThreads(ITestContext context) {
+        if (config.isConcurrencyAdaptive()
+            && context.getSuite().getXmlSuite().getDataProviderThreadCount() < config.getThreads()) {
+            context.getSuite().getXmlSuite().setDataProviderThreadCount(config.getThreads());
+            log.info("Adaptive concurrency: up to {} scenario threads", config.getThreads());
+        }
+    }
+
     @Override
     @DataProvider(parallel = true)
     public Object[][] scenarios() {
-        return super.scenarios();
+        List<Object[]> rows = Arrays.asList(super.scenarios());
+        if (!config.getImpactBase().isEmpty()) {
+            rows = selectImpacted(rows);
+        }
+        if (config.getShardCount() > 1) {
+            // Each machine plans on its own, so durations are only used when they all read the same history
+            boolean byDuration = config.isShardHistoryShared();
+            List<Object[]> shard = (byDuration
+                ? ShardPlanner.plan(rows, TestRunner::estimateMillis, config.getShardCount())
+                : ShardPlanner.planByKey(rows, TestRunner::scenarioKey, config.getShardCount()))
+                .get(config.getShardIndex());
+            log.info("Shard {} of {} (planned by {}): {} of {} scenarios, ~{}s of {}s",
+                config.getShardIndex(), config.getShardCount(), byDuration ? "duration" : "scenario key",
+                shard.size(), rows.size(),
+                ShardPlanner.totalCost(shard, TestRunner::estimateMillis) / 1000,
+                ShardPlanner.totalCost(rows, TestRunner::estimateMillis) / 1000);
+            rows = shard;
+        }
+
+        // The data provider hands rows to its threads in order; longest first keeps the tail short
+        int threads = config.getThreads();
+        if (threads > 1 && config.isScenarioLongestFirst()) {
+            rows = ShardPlanner.longestFirst(rows, TestRunner::estimateMillis);
+            log.info("Running {} scenarios longest first on {} threads: ~{}s of work, ~{}s expected",
+                rows.size(), threads, ShardPlanner.totalCost(rows, TestRunner::estimateMillis) / 1000,
+                ShardPlanner.makespan(rows, TestRunner::estimateMillis, threads) / 1000);
+        }
+
+        // Quarantined scenarios still run, but last, so they never hold up the rest
+        List<Object[]> quarantined = new ArrayList<>();
+        List<Object[]> ordered = new ArrayList<>();
+        for (Object[] row : rows) {
+            (isQuarantined(scenarioKey(row)) ? quarantined : ordered).add(row);
+        }
+        if (!quarantined.isEmpty()) {
+            log.info("{} quarantined flaky scenarios run last", quarantined.size());
+            ordered.addAll(quarantined);
+        }
+        return ordered.toArray(new Object[0][]);
+    }
+
+    /**
+     * Runs the scenario, rerunning a failure up to rerun.attempts times on this thread's warm
+     * browser. A scenario that passes on a rerun passes but is recorded as flaky. A scenario the
+     * watchdog stopped fails with its timing breakdown.
+     */
+    @Override
+    @Test(groups = "cucumber", description = "Runs Cucumber Scenarios", dataProvider = "scenarios")
+    public void runScenario(PickleWrapper pickleWrapper, FeatureWrapper featureWrapper) {
+        String key = scenarioKey(new Object[]{pickleWrapper, featureWrapper});
+        String name = pickleWrapper.getPickle().getName();
+        int attempts = 1 + config.getRerunAttempts();
+        Throwable failure = null;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                super.runScenario(pickleWrapper, featureWrapper);
+                LastAttemptReportPlugin.keepLastAttempt();
+                flakes.recordPassed(key, name, attempt);
+                if (attempt > 1) {
+                    log.warn("Scenario '{}' passed on attempt {} of {}, recorded as flaky", name, attempt, attempts);
+                }
+                return;
+            } catch (SkipException e) {
+                LastAttemptReportPlugin.keepLastAttempt();
+                throw e;
+            } catch (RuntimeException | Error e) {
+                String timeout = ScenarioWatchdog.takeTimeout();
+                failure = timeout != null ? new IllegalStateException(timeout, e) : e;
+                if (attempt < attempts) {
+                    LastAttemptReportPlugin.discardLastAttempt();
+                    log.warn("Scenario '{}' failed on attempt {} of {}, rerunning: {}", name, attempt, attempts, e.getMessage());
+                }
+            }
+        }
+        LastAttemptReportPlugin.keepLastAttempt();
+        flakes.recordFailed(key, name, attempts);
+        if (isQuarantined(key)) {
+            throw new SkipException(String.format("Quarantined, flaky in %.0f%% of recorded runs: %s",
+                flakes.getFlakeRate(key) * 100, failure.getMessage()), failure);
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw (RuntimeException) failure;
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void recordFlakes() {
+        try {
+            flakes.writeRunReport(FLAKY_REPORT, config.getFlakyQuarantineRate(), config.getFlakyQuarantineMinRuns());
+            flakes.save(Paths.get(config.getFlakyHistoryFile()));
+        } catch (IOException e) {
+            log.warn("Could not write flake statistics: {}", e.getMessage());
+        }
+        List<String> flaky = flakes.getFlakyThisRun();
+        if (!flaky.isEmpty()) {
+            log.warn("{} scenarios passed only on a rerun: {}", flaky.size(), flaky);
+        }
+    }
+
+    /**
+     * Keeps the scenarios affected by changes since impact.base, plus the baseline. Selection
+     * comes before sharding, so every shard sees the same scenarios.
+     */
+    private static List<Object[]> selectImpacted(List<Object[]> rows) {
+        ImpactSelector impact;
+        try {
+            impact = ImpactSelector.select(config.getImpactBase(), config.getImpactBaselineTags());
+            impact.writeReport(IMPACT_REPORT);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not select scenarios by impact, running all of them: {}", e.getMessage());
+            return rows;
+        }
+        List<Object[]> selected = new ArrayList<>();
+        for (Object[] row : rows) {
+            if (impact.shouldRun(scenarioKey(row))) {
+                selected.add(row);
+            }
+        }
+        return selected;
+    }
+
+    private static boolean isQuarantined(String key) {
+        return flakes.isQuarantined(key, config.getFlakyQuarantineRate(), config.getFlakyQuarantineMinRuns());
+    }
+
+    static String scenarioKey(Object[] row) {
+        Pickle pickle = ((PickleWrapper) row[0]).getPickle();
+        return ScenarioHistory.key(pickle.getUri(), pickle.getLine());
+    }
+
+    private static long estimateMillis(Object[] row) {
+        return history.estimateMillis(scenarioKey(row));
     }
 }
@@ -0,0 +1,136 @@
+package steps;
+
+import io.cucumber.java.After;
+import io.cucumber.java.AfterAll;
+import io.cucumber.java.AfterStep;
+import io.cucumber.java.Before;
+import io.cucumber.java.BeforeAll;
+import io.cucumber.java.Scenario;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import utils.CommandMetrics;
+import utils.ConfigManager;
+import utils.DriverManager;
+import utils.FastMode;
+import utils.LocalAppServer;
+import utils.ScenarioWatchdog;
+import utils.ScreenshotWriter;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+public class Hooks {
+    private static final Logger log = LoggerFactory.getLogger(Hooks.class);
+    private static final ConfigManager config = ConfigManager.getInstance();
+    private static final Path NETWORK_REPORT = Paths.get("target", "cucumber-reports", "network.json");
+    private static final Path HTML_REPORT_DIR = Paths.get("target", "cucumber-reports", "html");
+    private static final ScreenshotWriter screenshots = new ScreenshotWriter(
+        Paths.get("target", "cucumber-reports", "screenshots"), config.getScreenshotQueue());
+    
+    private final PageContext pages;
+    
+    public Hooks(PageContext pages) {
+        this.pages = pages;
+    }
+    
+    @BeforeAll
+    public static void startLocalApp() {
+        LocalAppServer.startIfEnabled();
+    }
+    
+    @BeforeAll
+    public static void prelaunchBrowsers() {
+        DriverManager.startPrelaunch();
+    }
+    
+    @AfterAll
+    public static void stopLocalApp() {
+        LocalAppServer.stopShared();
+    }
+    
+    @AfterAll
+    public static void writeNetworkReport() {
+        FastMode.writeReport(NETWORK_REPORT);
+    }
+    
+    @AfterAll
+    public static void flushScreenshots() {
+        screenshots.close(30, TimeUnit.SECONDS);
+    }
+    
+    @Before(order = 0)
+    public void setLogContext(Scenario scenario) {
+        MDC.put("scenario", scenario.getName());
+    }
+    
+    @AfterStep
+    public void captureStep(Scenario scenario) {
+        if (config.isScreenshotSteps()) {
+            capture(scenario, false);
+        }
+    }
+    
+    @After(order = 30000)
+    public void reportTimeout(Scenario scenario) {
+        String timeout = ScenarioWatchdog.peekTimeout();
+        if (timeout != null) {
+            scenario.log(timeout);
+        }
+    }
+    
+    // Runs before tearDown, while the scenario still holds its browser
+    @After(order = 20000)
+    public void captureFailure(Scenario scenario) {
+        if (scenario.isFailed() && config.isScreenshotOnFailure()) {
+            capture(scenario, config.isScreenshotPageSource());
+        }
+    }
+    
+    /**
+     * Grabs the browser's screenshot, and its page source if asked, and links them from the
+     * report. Only the grab happens on this thread; the files are written in the background.
+     */
+    private void capture(Scenario scenario, boolean withSource) {
+        WebDriver driver = DriverManager.getPool().current();
+        if (driver == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            byte[] png = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            String source = withSource ? driver.getPageSource() : null;
+            CommandMetrics.recordPhase("screenshot.grab", System.nanoTime() - start);
+            attach(scenario, screenshots.writeScreenshot(png), "Screenshot");
+            if (source != null) {
+                attach(scenario, screenshots.writePageSource(source), "Page source");
+            }
+        } catch (WebDriverException e) {
+            log.warn("Could not capture the browser for '{}': {}", scenario.getName(), e.getMessage());
+        }
+    }
+    
+    private static void attach(Scenario scenario, Path file, String name) {
+        String link = HTML_REPORT_DIR.relativize(file).toString().replace('\\', '/');
+        scenario.attach(link, "text/uri-list", name);
+    }
+    
+    @After
+    public void tearDown(Scenario scenario) {
+        if (log.isDebugEnabled()) {
+            log.debug("Element lookups - {}", pages.getElementCacheStats());
+        }
+        FastMode.finishScenario(DriverManager.getPool().current(), scenario.getName());
+        DriverManager.releaseDriver();
+    }
+    
+    @After(order = 0)
+    public void clearLogContext() {
+        MDC.remove("scenario");
+    }
+}
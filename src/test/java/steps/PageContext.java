@@ -0,0 +1,54 @@
+package steps;
+
+import org.openqa.selenium.WebDriver;
+import pages.InventoryPage;
+import pages.LoginPage;
+import utils.DriverManager;
+
+/**
+ * Scenario-scoped holder for the driver and page objects, injected by picocontainer into
+ * every step class. Nothing touches the browser until a step first asks for it.
+ */
+public class PageContext {
+    private WebDriver driver;
+    private LoginPage loginPage;
+    private InventoryPage inventoryPage;
+    
+    public WebDriver getDriver() {
+        if (driver == null) {
+            driver = DriverManager.getDriver();
+        }
+        return driver;
+    }
+    
+    public LoginPage getLoginPage() {
+        if (loginPage == null) {
+            loginPage = new LoginPage(getDriver());
+        }
+        return loginPage;
+    }
+    
+    public InventoryPage getInventoryPage() {
+        if (inventoryPage == null) {
+            inventoryPage = new InventoryPage(getDriver());
+        }
+        return inventoryPage;
+    }
+    
+    /**
+     * Summarises element lookups for the pages this scenario actually used.
+     */
+    public String getElementCacheStats() {
+        StringBuilder stats = new StringBuilder();
+        if (loginPage != null) {
+            stats.append("login page: ").append(loginPage.getElementCache().getStats());
+        }
+        if (inventoryPage != null) {
+            if (stats.length() > 0) {
+                stats.append("; ");
+            }
+            stats.append("inventory page: ").append(inventoryPage.getElementCache().getStats());
+        }
+        return stats.length() > 0 ? stats.toString() : "no pages used";
+    }
+}
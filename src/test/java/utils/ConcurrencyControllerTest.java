@@ -0,0 +1,41 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ConcurrencyControllerTest {
+    private static final long MIB = 1024 * 1024;
+
+    private static ConcurrencyController.Decision decide(ConcurrencyController.Sample sample) {
+        return ConcurrencyController.decide(sample, 8, 1.0, 1024 * MIB, 500 * MIB);
+    }
+
+    @Test
+    public void fitsBrowsersOfTheMeasuredSizeIntoFreeMemory() {
+        // Two browsers use 600 MiB each; 2.2 GiB above the reserve fits three more
+        ConcurrencyController.Decision decision = decide(
+            new ConcurrencyController.Sample(16, 1.0, 3300 * MIB, 1200 * MIB, 2, 2));
+
+        Assert.assertEquals(decision.limit, 5);
+        Assert.assertTrue(decision.reason.startsWith("memory"), decision.reason);
+    }
+
+    @Test
+    public void shrinksBelowTheRunningBrowsersWhenMemoryRunsOut() {
+        ConcurrencyController.Decision decision = decide(
+            new ConcurrencyController.Sample(16, 1.0, 100 * MIB, 2000 * MIB, 4, 4));
+
+        Assert.assertEquals(decision.limit, 2);
+    }
+
+    @Test
+    public void isBoundByCoresAndHeldWhileTheMachineIsOverloaded() {
+        ConcurrencyController.Decision idle = decide(new ConcurrencyController.Sample(4, 0.5, 64000 * MIB, 0, 0, 0));
+        ConcurrencyController.Decision busy = decide(new ConcurrencyController.Sample(4, 9.0, 64000 * MIB, 900 * MIB, 2, 2));
+
+        Assert.assertEquals(idle.limit, 4);
+        Assert.assertTrue(idle.reason.startsWith("cores"), idle.reason);
+        Assert.assertEquals(busy.limit, 2);
+        Assert.assertTrue(busy.reason.startsWith("load"), busy.reason);
+    }
+}
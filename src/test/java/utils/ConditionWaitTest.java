@@ -0,0 +1,67 @@
+package utils;
+
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConditionWaitTest {
+    // Answers executeAsyncScript with the given results in turn, throwing those that are exceptions
+    private static WebDriver scriptedDriver(AtomicInteger scripts, Object... results) {
+        return (WebDriver) Proxy.newProxyInstance(
+            WebDriver.class.getClassLoader(),
+            new Class<?>[]{WebDriver.class, JavascriptExecutor.class},
+            (proxy, method, args) -> {
+                if (!method.getName().equals("executeAsyncScript")) {
+                    return null;
+                }
+                Object result = results[Math.min(scripts.getAndIncrement(), results.length - 1)];
+                if (result instanceof RuntimeException) {
+                    throw (RuntimeException) result;
+                }
+                return result;
+            });
+    }
+
+    @Test
+    public void resumesOnTheNewDocumentAfterANavigation() {
+        AtomicInteger scripts = new AtomicInteger();
+        WebDriver driver = scriptedDriver(scripts,
+            new JavascriptException("javascript error: document unloaded while waiting for result"),
+            Map.of("ok", true, "url", "http://app/cart.html", "observed", "cart"));
+
+        new ConditionWait(driver, Duration.ofSeconds(5)).untilUrlContains("cart");
+
+        Assert.assertEquals(scripts.get(), 2);
+    }
+
+    @Test
+    public void endsTheWaitWhenTheSessionIsGone() {
+        AtomicInteger scripts = new AtomicInteger();
+        WebDriver driver = scriptedDriver(scripts, new NoSuchSessionException("invalid session id"));
+        long started = System.nanoTime();
+
+        Assert.assertThrows(NoSuchSessionException.class,
+            () -> new ConditionWait(driver, Duration.ofSeconds(5)).untilUrlContains("cart"));
+
+        Assert.assertEquals(scripts.get(), 1, "A lost session should not be retried");
+        Assert.assertTrue(System.nanoTime() - started < Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    public void endsTheWaitOnAScriptError() {
+        AtomicInteger scripts = new AtomicInteger();
+        WebDriver driver = scriptedDriver(scripts, new JavascriptException("javascript error: args is not defined"));
+
+        Assert.assertThrows(JavascriptException.class,
+            () -> new ConditionWait(driver, Duration.ofSeconds(5)).untilUrlContains("cart"));
+        Assert.assertEquals(scripts.get(), 1);
+    }
+}
@@ -0,0 +1,80 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+public class ConfigManagerTest {
+
+    private static Properties file() {
+        Properties file = new Properties();
+        file.setProperty("app.url", "https://www.saucedemo.com");
+        file.setProperty("browser.default", "chrome");
+        file.setProperty("test.threads", "1");
+        file.setProperty("selenium.grid.enabled", "false");
+        file.setProperty("env.default", "local");
+        file.setProperty("env.staging.url", "https://staging.example.com");
+        file.setProperty("env.staging.local.server.enabled", "true");
+        return file;
+    }
+
+    private static Properties system(String... keysAndValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+
+    @Test
+    public void profileOverridesTheFile() {
+        ConfigManager config = new ConfigManager(file(), Map.of("ENV", "staging"), system());
+
+        Assert.assertEquals(config.getEnvironment(), "staging");
+        Assert.assertEquals(config.getAppUrl(), "https://staging.example.com");
+        Assert.assertTrue(config.isLocalServerEnabled());
+    }
+
+    @Test
+    public void systemPropertiesOverrideEnvironmentVariablesOverrideTheProfile() {
+        Map<String, String> environment = Map.of("ENV", "staging", "BROWSER", "firefox", "APP_URL", "https://env.example.com");
+
+        ConfigManager fromEnvironment = new ConfigManager(file(), environment, system());
+        Assert.assertEquals(fromEnvironment.getBrowser(), "firefox");
+        Assert.assertEquals(fromEnvironment.getAppUrl(), "https://env.example.com");
+
+        ConfigManager fromSystem = new ConfigManager(file(), environment,
+            system("browser", "edge", "app.url", "https://sys.example.com", "env", "local"));
+        Assert.assertEquals(fromSystem.getBrowser(), "edge");
+        Assert.assertEquals(fromSystem.getAppUrl(), "https://sys.example.com");
+        Assert.assertEquals(fromSystem.getEnvironment(), "local");
+    }
+
+    @Test
+    public void ignoresEnvironmentVariablesThatNameNoSetting() {
+        // This file has no test.timeout, so TEST_TIMEOUT is not a setting and its bad value is never read
+        ConfigManager config = new ConfigManager(file(),
+            Map.of("TEST_TIMEOUT", "-1", "PATH", "/usr/bin", "SELENIUM_GRID_ENABLED", "true"), system());
+
+        Assert.assertEquals(config.getTestTimeout(), 60);
+        Assert.assertTrue(config.isSeleniumGridEnabled());
+    }
+
+    @Test
+    public void reportsEveryInvalidValue() {
+        try {
+            new ConfigManager(file(), Collections.emptyMap(),
+                system("browser", "safari", "threads", "many", "app.url", "not a url", "shard.index", "2"));
+            Assert.fail("Invalid values should stop the run");
+        } catch (IllegalStateException e) {
+            String message = e.getMessage();
+            Assert.assertTrue(message.contains("browser: unsupported value 'safari'"), message);
+            Assert.assertTrue(message.contains("threads: expected an integer but was 'many'"), message);
+            Assert.assertTrue(message.contains("app.url"), message);
+            Assert.assertTrue(message.contains("shard.index: must be below shard.count (1) but was 2"), message);
+        }
+    }
+}
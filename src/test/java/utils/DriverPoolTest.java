@@ -0,0 +1,148 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class DriverPoolTest {
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger quit = new AtomicInteger();
+
+    private WebDriver fakeDriver() {
+        int sessionId = created.incrementAndGet();
+        return (WebDriver) Proxy.newProxyInstance(
+            WebDriver.class.getClassLoader(),
+            new Class<?>[]{WebDriver.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "quit":
+                        quit.incrementAndGet();
+                        return null;
+                    case "toString":
+                        return "FakeDriver-" + sessionId;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    @Test
+    public void concurrentScenariosEachSeeTheirOwnSession() throws Exception {
+        int scenarios = 4;
+        DriverPool pool = new DriverPool(this::fakeDriver, scenarios, Duration.ofSeconds(5), Duration.ofMinutes(5));
+        CyclicBarrier allCheckedOut = new CyclicBarrier(scenarios);
+        Set<WebDriver> sessions = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(scenarios);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < scenarios; i++) {
+                Callable<Boolean> scenario = () -> {
+                    WebDriver driver = pool.checkout();
+                    sessions.add(driver);
+                    allCheckedOut.await(5, TimeUnit.SECONDS);
+                    boolean stable = pool.checkout() == driver;
+                    pool.checkin();
+                    return stable;
+                };
+                results.add(executor.submit(scenario));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get(10, TimeUnit.SECONDS), "Thread should keep the same driver for its whole lease");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(sessions.size(), scenarios, "Every concurrent scenario should hold a distinct session");
+        Assert.assertEquals(pool.getActiveCount(), 0);
+        Assert.assertEquals(pool.getIdleCount(), scenarios);
+        int quitBefore = quit.get();
+        pool.shutdown();
+        Assert.assertEquals(quit.get(), quitBefore + scenarios);
+    }
+
+    @Test
+    public void checkoutTimesOutWhenPoolIsExhausted() throws Exception {
+        DriverPool pool = new DriverPool(this::fakeDriver, 1, Duration.ofMillis(200), Duration.ofMinutes(5));
+        pool.checkout();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> second = executor.submit(pool::checkout);
+            try {
+                second.get(5, TimeUnit.SECONDS);
+                Assert.fail("Second thread should not get a driver while the only slot is leased");
+            } catch (java.util.concurrent.ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            executor.shutdownNow();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void leaseOfTerminatedThreadIsReclaimed() throws Exception {
+        DriverPool pool = new DriverPool(this::fakeDriver, 1, Duration.ofSeconds(5), Duration.ofMinutes(5));
+        Thread leaker = new Thread(pool::checkout);
+        leaker.start();
+        leaker.join();
+
+        int quitBefore = quit.get();
+        WebDriver driver = pool.checkout();
+        Assert.assertNotNull(driver);
+        Assert.assertEquals(quit.get(), quitBefore + 1, "Leaked driver should have been quit");
+        pool.invalidate();
+        Assert.assertNull(pool.current());
+    }
+
+    @Test
+    public void prelaunchedBrowsersAreReadyAheadOfCheckout() throws Exception {
+        Set<String> launchThreads = ConcurrentHashMap.newKeySet();
+        DriverPool pool = new DriverPool(() -> {
+            launchThreads.add(Thread.currentThread().getName());
+            return fakeDriver();
+        }, 3, Duration.ofSeconds(5), Duration.ofMinutes(5));
+        try {
+            pool.startPrelaunch(2);
+            waitUntil(() -> pool.getIdleCount() == 2);
+
+            Assert.assertNotNull(pool.checkout());
+            // The browser taken is replaced, but the pool never holds more than its size
+            waitUntil(() -> pool.getIdleCount() == 2 && pool.getLaunchingCount() == 0);
+            Assert.assertEquals(pool.getActiveCount() + pool.getIdleCount(), 3);
+            Assert.assertFalse(launchThreads.contains(Thread.currentThread().getName()),
+                "Checkout should not have launched a browser itself");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.nanoTime() < deadline, "Timed out waiting for the pool");
+            Thread.sleep(10);
+        }
+    }
+}
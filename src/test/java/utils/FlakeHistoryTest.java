@@ -0,0 +1,53 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FlakeHistoryTest {
+    private static final String KEY = "src/test/resources/features/inventory.feature:21";
+
+    @Test
+    public void scenarioIsQuarantinedOnceFlakyOftenEnough() throws Exception {
+        Path directory = Files.createTempDirectory("flaky-history");
+        Path file = directory.resolve("flaky-history.json");
+        try {
+            for (int run = 0; run < 4; run++) {
+                FlakeHistory history = FlakeHistory.load(file);
+                history.recordPassed(KEY, "Add multiple items to cart", run % 2 == 0 ? 2 : 1);
+                history.save(file);
+            }
+
+            FlakeHistory history = FlakeHistory.load(file);
+            Assert.assertEquals(history.getFlakeRate(KEY), 0.5);
+            Assert.assertTrue(history.isQuarantined(KEY, 0.3, 4));
+            Assert.assertFalse(history.isQuarantined(KEY, 0.3, 5), "Too few runs recorded to judge");
+            Assert.assertFalse(history.isQuarantined(KEY, 0, 1), "A rate of 0 disables quarantine");
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+
+    @Test
+    public void savesFromSeveralRunnersAreMerged() throws Exception {
+        Path directory = Files.createTempDirectory("flaky-history");
+        Path file = directory.resolve("flaky-history.json");
+        try {
+            FlakeHistory first = FlakeHistory.load(file);
+            FlakeHistory second = FlakeHistory.load(file);
+            first.recordPassed(KEY, "Add multiple items to cart", 2);
+            second.recordFailed("src/test/resources/features/login.feature:10", "Successful login", 2);
+            first.save(file);
+            second.save(file);
+
+            FlakeHistory merged = FlakeHistory.load(file);
+            Assert.assertEquals(merged.getFlakeRate(KEY), 1.0);
+            Assert.assertEquals(merged.getFlakeRate("src/test/resources/features/login.feature:10"), 0.0);
+            Assert.assertTrue(Files.readString(file).contains("\"failed\" : 1"));
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GridSessionBrokerTest {
+    private static final String STATUS = "{\"value\": {\"ready\": true, \"nodes\": ["
+        + "{\"availability\": \"UP\", \"slots\": ["
+        + "  {\"session\": {\"sessionId\": \"a\"}, \"stereotype\": {\"browserName\": \"chrome\"}},"
+        + "  {\"session\": null, \"stereotype\": {\"browserName\": \"chrome\"}},"
+        + "  {\"session\": null, \"stereotype\": {\"browserName\": \"firefox\"}}]},"
+        + "{\"availability\": \"DRAINING\", \"slots\": ["
+        + "  {\"session\": null, \"stereotype\": {\"browserName\": \"chrome\"}}]}]}}";
+
+    @Test
+    public void countsFreeSlotsOnNodesThatAreUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        Assert.assertEquals(GridSessionBroker.freeSlots(mapper.readTree(STATUS), "chrome"), 1);
+        Assert.assertEquals(GridSessionBroker.freeSlots(mapper.readTree(STATUS), "firefox"), 1);
+        Assert.assertEquals(GridSessionBroker.freeSlots(mapper.readTree("{\"value\": {\"ready\": true}}"), "chrome"), -1);
+    }
+
+    @Test
+    public void waitsInsteadOfRequestingSessionsFromAFullHub() throws Exception {
+        AtomicInteger sessionRequests = new AtomicInteger();
+        HttpServer hub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        hub.createContext("/wd/hub/status", exchange -> {
+            byte[] body = STATUS.replace("\"session\": null", "\"session\": {}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        hub.createContext("/wd/hub/session", exchange -> {
+            sessionRequests.incrementAndGet();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        hub.start();
+        try {
+            URL url = new URL("http://127.0.0.1:" + hub.getAddress().getPort() + "/wd/hub");
+            GridSessionBroker broker = new GridSessionBroker(url, Duration.ofSeconds(1), 50, 200);
+            try {
+                broker.newSession(new ChromeOptions());
+                Assert.fail("A full hub should not have produced a session");
+            } catch (IllegalStateException e) {
+                Assert.assertTrue(e.getMessage().contains("within 1s"), e.getMessage());
+            }
+            Assert.assertEquals(sessionRequests.get(), 0, "No session should be requested while no slot is free");
+        } finally {
+            hub.stop(0);
+        }
+    }
+
+    @Test
+    public void readsTheStatusAgainAfterTakingASlot() throws Exception {
+        AtomicInteger statusReads = new AtomicInteger();
+        HttpServer hub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        hub.createContext("/wd/hub/status", exchange -> {
+            statusReads.incrementAndGet();
+            byte[] body = STATUS.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        hub.createContext("/wd/hub/session", exchange -> {
+            byte[] body = ("{\"value\": {\"sessionId\": \"s" + statusReads.get() + "\","
+                + " \"capabilities\": {\"browserName\": \"chrome\"}}}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        hub.start();
+        try {
+            URL url = new URL("http://127.0.0.1:" + hub.getAddress().getPort() + "/wd/hub");
+            GridSessionBroker broker = new GridSessionBroker(url, Duration.ofSeconds(5), 50, 200);
+            Assert.assertNotNull(broker.newSession(new ChromeOptions()));
+            Assert.assertNotNull(broker.newSession(new ChromeOptions()));
+            Assert.assertEquals(statusReads.get(), 2, "Each session should be placed against a fresh status");
+        } finally {
+            hub.stop(0);
+        }
+    }
+
+    @Test
+    public void backoffGrowsWithinItsBounds() throws Exception {
+        GridSessionBroker broker = new GridSessionBroker(new URL("http://127.0.0.1:1/wd/hub"), Duration.ofSeconds(1), 100, 1000);
+        for (int i = 0; i < 50; i++) {
+            long first = broker.backoffMillis(0);
+            long late = broker.backoffMillis(10);
+            Assert.assertTrue(first >= 50 && first <= 100, "First backoff was " + first);
+            Assert.assertTrue(late >= 500 && late <= 1000, "Capped backoff was " + late);
+        }
+    }
+}
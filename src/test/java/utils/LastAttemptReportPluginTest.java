@@ -0,0 +1,138 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.messages.types.Timestamp;
+import io.cucumber.plugin.event.EventHandler;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.Location;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestRunStarted;
+import io.cucumber.plugin.event.TestSourceRead;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class LastAttemptReportPluginTest {
+    private static final URI FEATURE = URI.create("file:features/cart.feature");
+    private static final String SOURCE = "Feature: Cart\n\n  Scenario: Checkout\n    Given a cart\n";
+
+    // Publisher that hands every event to the handlers the plugin registered for its type
+    private static final class Publisher implements EventPublisher {
+        private final List<Class<?>> types = new ArrayList<>();
+        private final List<EventHandler<?>> handlers = new ArrayList<>();
+
+        @Override
+        public <T> void registerHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+            types.add(eventType);
+            handlers.add(handler);
+        }
+
+        @Override
+        public <T> void removeHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+        }
+
+        @SuppressWarnings("unchecked")
+        private void send(Object event) {
+            for (int i = 0; i < types.size(); i++) {
+                if (types.get(i).isInstance(event)) {
+                    ((EventHandler<Object>) handlers.get(i)).receive(event);
+                }
+            }
+        }
+    }
+
+    // A new test case per attempt, as Cucumber creates for each run of the scenario
+    private static TestCase checkout() {
+        UUID id = UUID.randomUUID();
+        return (TestCase) Proxy.newProxyInstance(TestCase.class.getClassLoader(), new Class<?>[]{TestCase.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getUri": return FEATURE;
+                    case "getLocation": return new Location(3, 3);
+                    case "getLine": return 3;
+                    case "getName": return "Checkout";
+                    case "getKeyword": return "Scenario";
+                    case "getScenarioDesignation": return "features/cart.feature:3 # Checkout";
+                    case "getTags":
+                    case "getTestSteps": return Collections.emptyList();
+                    case "getId": return id;
+                    default: return null;
+                }
+            });
+    }
+
+    private static void attempt(Publisher publisher, Status status) {
+        TestCase testCase = checkout();
+        publisher.send(new TestCaseStarted(Instant.now(), testCase));
+        publisher.send(new TestCaseFinished(Instant.now(), testCase, new Result(status, Duration.ZERO, null)));
+    }
+
+    private static Envelope runFinishedMessage() {
+        return Envelope.of(new io.cucumber.messages.types.TestRunFinished(null, true, new Timestamp(0L, 0L), null));
+    }
+
+    @Test
+    public void keepsTheRecoveredAttemptOnceTaggedFlaky() throws IOException {
+        Path directory = Files.createTempDirectory("reports");
+        try {
+            Publisher publisher = new Publisher();
+            new LastAttemptReportPlugin(directory.toString()).setEventPublisher(publisher);
+
+            publisher.send(new TestRunStarted(Instant.now()));
+            publisher.send(new TestSourceRead(Instant.now(), FEATURE, SOURCE));
+            attempt(publisher, Status.FAILED);
+            LastAttemptReportPlugin.discardLastAttempt();
+            attempt(publisher, Status.PASSED);
+            LastAttemptReportPlugin.keepLastAttempt();
+            publisher.send(new TestRunFinished(Instant.now(), new Result(Status.PASSED, Duration.ZERO, null)));
+            publisher.send(runFinishedMessage());
+
+            JsonNode elements = new ObjectMapper().readTree(directory.resolve("cucumber.json").toFile())
+                .get(0).get("elements");
+            Assert.assertEquals(elements.size(), 1);
+            Assert.assertEquals(elements.get(0).get("tags").get(0).get("name").asText(), "@flaky");
+            Assert.assertTrue(Files.exists(directory.resolve("junit.xml")));
+            Assert.assertTrue(Files.exists(directory.resolve("html").resolve("cucumber-pretty.html")));
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+
+    @Test
+    public void writesTheReportsWhenOnlyTheFinalMessageArrives() throws IOException {
+        Path directory = Files.createTempDirectory("reports");
+        try {
+            Publisher publisher = new Publisher();
+            new LastAttemptReportPlugin(directory.toString()).setEventPublisher(publisher);
+
+            publisher.send(new TestSourceRead(Instant.now(), FEATURE, SOURCE));
+            attempt(publisher, Status.PASSED);
+            publisher.send(runFinishedMessage());
+
+            JsonNode elements = new ObjectMapper().readTree(directory.resolve("cucumber.json").toFile())
+                .get(0).get("elements");
+            Assert.assertEquals(elements.size(), 1, "The undecided attempt is kept when the run ends");
+            Assert.assertEquals(elements.get(0).path("tags").size(), 0);
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+public class LiveMetricsTest {
+
+    @Test
+    public void reportsScenarioProgressInPrometheusFormat() {
+        DriverPool pool = new DriverPool(() -> (WebDriver) null, 2, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        LiveMetrics metrics = new LiveMetrics(pool);
+
+        metrics.scenarioStarted("a", "Checkout with \"two\" items");
+        metrics.scenarioStarted("b", "Login");
+        metrics.scenarioStarted("c", "Logout");
+        metrics.scenarioFinished("b", "PASSED");
+        metrics.scenarioFinished("c", "FAILED");
+        String text = metrics.render();
+
+        Assert.assertTrue(text.contains("\nqa_scenarios_total{status=\"failed\"} 1\n"), text);
+        Assert.assertTrue(text.contains("\nqa_scenarios_total{status=\"passed\"} 1\n"), text);
+        Assert.assertTrue(text.contains("\nqa_scenarios_running 1\n"), text);
+        Assert.assertTrue(text.contains("\nqa_scenarios_per_minute 2\n"), text);
+        Assert.assertTrue(text.contains("\nqa_browsers{state=\"idle\"} 0\n"), text);
+        Assert.assertTrue(text.contains("\nqa_slowest_running_scenario_seconds{scenario=\"Checkout with \\\"two\\\" items\"} "), text);
+        Assert.assertTrue(text.contains("# TYPE qa_command_seconds_total counter\n"), text);
+    }
+}
@@ -0,0 +1,73 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class LocalAppServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpResponse<String> get(LocalAppServer server, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.getBaseUrl() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private LocalAppServer start(int latencyMs, double errorRate) throws Exception {
+        LocalAppServer server = new LocalAppServer(new InetSocketAddress("127.0.0.1", 0), latencyMs, errorRate);
+        server.start();
+        return server;
+    }
+
+    @Test
+    public void servesPagesWithTheSelectorsThePageObjectsUse() throws Exception {
+        LocalAppServer server = start(0, 0);
+        try {
+            HttpResponse<String> login = get(server, "/");
+            Assert.assertEquals(login.statusCode(), 200);
+            Assert.assertTrue(login.body().contains("id=\"user-name\""));
+            Assert.assertTrue(login.body().contains("class=\"login_logo\""));
+            Assert.assertTrue(login.body().contains("error-message-container"));
+
+            HttpResponse<String> inventory = get(server, "/inventory.html");
+            Assert.assertEquals(inventory.statusCode(), 200);
+            Assert.assertTrue(inventory.body().contains("shopping_cart_link"));
+            Assert.assertTrue(inventory.body().contains("logout_sidebar_link"));
+
+            Assert.assertEquals(get(server, "/cart.html").statusCode(), 200);
+            Assert.assertTrue(get(server, "/app.js").body().contains("shopping_cart_badge"));
+            Assert.assertEquals(get(server, "/missing.html").statusCode(), 404);
+            Assert.assertEquals(get(server, "/../config.properties").statusCode(), 404);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void injectsErrorsIntoPageLoadsOnly() throws Exception {
+        LocalAppServer server = start(0, 1.0);
+        try {
+            Assert.assertEquals(get(server, "/inventory.html").statusCode(), 500);
+            Assert.assertEquals(get(server, "/app.js").statusCode(), 200);
+            Assert.assertEquals(server.getInjectedErrorCount(), 1);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void delaysEveryResponse() throws Exception {
+        LocalAppServer server = start(200, 0);
+        try {
+            long started = System.nanoTime();
+            Assert.assertEquals(get(server, "/app.css").statusCode(), 200);
+            Assert.assertTrue((System.nanoTime() - started) / 1_000_000 >= 200, "Response should be delayed");
+        } finally {
+            server.stop();
+        }
+    }
+}
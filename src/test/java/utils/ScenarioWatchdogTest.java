@@ -0,0 +1,46 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ScenarioWatchdogTest {
+    private static final long SCENARIO_BUDGET = TimeUnit.SECONDS.toNanos(60);
+    private static final long STEP_BUDGET = TimeUnit.SECONDS.toNanos(45);
+
+    @Test
+    public void stopsAStepOverItsBudgetOnceWithABreakdown() {
+        ScenarioWatchdog.Watch watch = new ScenarioWatchdog.Watch("Checkout");
+        watch.stepStarted("Given I am logged in");
+        watch.stepFinished("PASSED");
+        watch.stepStarted("When I open the cart");
+        long later = System.nanoTime() + TimeUnit.SECONDS.toNanos(50);
+
+        String overrun = watch.overrun(later, SCENARIO_BUDGET, STEP_BUDGET);
+        Assert.assertEquals(overrun, "Step 'When I open the cart' of scenario 'Checkout' ran out of its 45.0s budget");
+        Assert.assertNull(watch.overrun(later, SCENARIO_BUDGET, STEP_BUDGET), "Stopped once");
+
+        String breakdown = watch.breakdown(overrun, later);
+        Assert.assertTrue(breakdown.contains("PASSED") && breakdown.contains("Given I am logged in"), breakdown);
+        Assert.assertTrue(breakdown.contains("RUNNING") && breakdown.contains("When I open the cart"), breakdown);
+        Assert.assertTrue(watch.stepFinished("FAILED"), "The finished step was the stopped one");
+    }
+
+    @Test
+    public void doesNotCountTimeSpentWaitingForABrowser() {
+        ScenarioWatchdog.Watch watch = new ScenarioWatchdog.Watch("Login");
+        watch.stepStarted("Given I am on the login page");
+        watch.pause();
+
+        Assert.assertNull(watch.overrun(System.nanoTime() + TimeUnit.MINUTES.toNanos(5), SCENARIO_BUDGET, STEP_BUDGET));
+    }
+
+    @Test
+    public void stopsAScenarioOverItsBudget() {
+        ScenarioWatchdog.Watch watch = new ScenarioWatchdog.Watch("Login");
+        long later = System.nanoTime() + TimeUnit.SECONDS.toNanos(61);
+
+        Assert.assertEquals(watch.overrun(later, SCENARIO_BUDGET, STEP_BUDGET), "Scenario 'Login' ran out of its 60.0s budget");
+    }
+}
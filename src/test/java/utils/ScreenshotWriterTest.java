@@ -0,0 +1,54 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+public class ScreenshotWriterTest {
+
+    @Test
+    public void writesIdenticalCapturesOnce() throws IOException {
+        Path directory = Files.createTempDirectory("screenshots");
+        try {
+            ScreenshotWriter writer = new ScreenshotWriter(directory, 1);
+
+            Path first = writer.writeScreenshot(new byte[]{1, 2, 3});
+            Path second = writer.writeScreenshot(new byte[]{1, 2, 3});
+            Path other = writer.writeScreenshot(new byte[]{4, 5, 6});
+            writer.close(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals(second, first);
+            Assert.assertNotEquals(other, first);
+            Assert.assertEquals(Files.readAllBytes(first), new byte[]{1, 2, 3});
+            Assert.assertEquals(writer.getWrittenCount(), 2);
+            Assert.assertEquals(writer.getDuplicateCount(), 1);
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+
+    @Test
+    public void gzipsPageSources() throws IOException {
+        Path directory = Files.createTempDirectory("screenshots");
+        try {
+            ScreenshotWriter writer = new ScreenshotWriter(directory, 4);
+
+            Path file = writer.writePageSource("<html>cart</html>");
+            writer.close(10, TimeUnit.SECONDS);
+
+            Assert.assertTrue(file.getFileName().toString().endsWith(".html.gz"), file.toString());
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                Assert.assertEquals(new String(in.readAllBytes(), StandardCharsets.UTF_8), "<html>cart</html>");
+            }
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class ShardPlannerTest {
+
+    @Test
+    public void balancesShardsByDuration() {
+        List<Integer> durations = Arrays.asList(2, 9, 3, 7, 3, 4, 8, 2);
+        List<List<Integer>> plan = ShardPlanner.plan(durations, Integer::longValue, 3);
+
+        Assert.assertEquals(plan.size(), 3);
+        Assert.assertEquals(plan.stream().mapToInt(List::size).sum(), durations.size());
+        long slowest = plan.stream().mapToLong(shard -> ShardPlanner.totalCost(shard, Integer::longValue)).max().getAsLong();
+        Assert.assertEquals(slowest, 13, "38s of work over 3 shards should finish in 13s, not " + slowest);
+    }
+
+    @Test
+    public void keepsOriginalOrderWithinShards() {
+        List<Integer> durations = Arrays.asList(5, 1, 4, 2, 3);
+        for (List<Integer> shard : ShardPlanner.plan(durations, Integer::longValue, 2)) {
+            for (int i = 1; i < shard.size(); i++) {
+                Assert.assertTrue(durations.indexOf(shard.get(i - 1)) < durations.indexOf(shard.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void planIsTheSameOnEveryCall() {
+        List<Integer> durations = Arrays.asList(1, 1, 1, 1, 1, 1, 1);
+        Assert.assertEquals(ShardPlanner.plan(durations, Integer::longValue, 3),
+            ShardPlanner.plan(durations, Integer::longValue, 3));
+    }
+
+    @Test
+    public void keyPlanPlacesEachItemIndependentlyOfTheOthers() {
+        List<String> keys = Arrays.asList("a.feature:3", "a.feature:9", "b.feature:4", "c.feature:7", "c.feature:12");
+        List<List<String>> plan = ShardPlanner.planByKey(keys, key -> key, 3);
+        List<List<String>> withoutOne = ShardPlanner.planByKey(keys.subList(1, keys.size()), key -> key, 3);
+
+        Assert.assertEquals(plan.stream().mapToInt(List::size).sum(), keys.size());
+        for (int shard = 0; shard < 3; shard++) {
+            List<String> expected = new ArrayList<>(plan.get(shard));
+            expected.remove("a.feature:3");
+            Assert.assertEquals(withoutOne.get(shard), expected);
+        }
+    }
+
+    @Test
+    public void longestFirstShortensTheTail() {
+        // Feature-file order leaves the 9s scenario for last on one of two workers
+        List<Integer> durations = Arrays.asList(1, 1, 2, 7, 9);
+        List<Integer> ordered = ShardPlanner.longestFirst(durations, Integer::longValue);
+
+        Assert.assertEquals(ordered, Arrays.asList(9, 7, 2, 1, 1));
+        Assert.assertEquals(dispatchInOrder(durations, 2), 12);
+        Assert.assertEquals(dispatchInOrder(ordered, 2), 10);
+    }
+
+    // Hands each duration, in list order, to whichever worker frees up first, as the data provider does
+    private static long dispatchInOrder(List<Integer> durations, int workers) {
+        PriorityQueue<Long> finishTimes = new PriorityQueue<>();
+        for (int i = 0; i < workers; i++) {
+            finishTimes.add(0L);
+        }
+        for (int duration : durations) {
+            finishTimes.add(finishTimes.poll() + duration);
+        }
+        return Collections.max(finishTimes);
+    }
+
+    @Test
+    public void unseenScenariosAreEstimatedAtTheDefault() {
+        ScenarioHistory history = ScenarioHistory.load(Paths.get("target/no-such-report.json"), 45_000);
+        Assert.assertEquals(history.estimateMillis("src/test/resources/features/new.feature:3"), 45_000);
+    }
+
+    @Test
+    public void relativeAndAbsoluteFeatureUrisShareAKey() {
+        String absolute = Paths.get("src/test/resources/features/login.feature").toAbsolutePath().toUri().toString();
+        Assert.assertEquals(ScenarioHistory.key(absolute, 10), "src/test/resources/features/login.feature:10");
+        Assert.assertEquals(ScenarioHistory.key("file:src/test/resources/features/login.feature", 10),
+            "src/test/resources/features/login.feature:10");
+    }
+}
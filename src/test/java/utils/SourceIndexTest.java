@@ -0,0 +1,115 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class SourceIndexTest {
+    private static final String PAGE = String.join("\n",
+        "public class CartPage {",                               // 1
+        "    private final By badge = By.id(\"cart\");",         // 2
+        "",                                                      // 3
+        "    public int count() {",                              // 4
+        "        return Integer.parseInt(text(\"} {\"));",       // 5
+        "    }",                                                 // 6
+        "",                                                      // 7
+        "    private String text(String selector) {",            // 8
+        "        return selector;",                              // 9
+        "    }",                                                 // 10
+        "",                                                      // 11
+        "    public void open() {",                              // 12
+        "    }",                                                 // 13
+        "}");
+    private static final String STEPS = String.join("\n",
+        "public class CartSteps {",
+        "    private final Context context;",
+        "",
+        "    public void the_cart_shows() {",
+        "        context.getCartPage().count();",
+        "    }",
+        "}");
+    private static final String CONTEXT = String.join("\n",
+        "public class Context {",
+        "    public CartPage getCartPage() {",
+        "        return new CartPage();",
+        "    }",
+        "}");
+
+    private SourceIndex index() {
+        SourceIndex index = new SourceIndex();
+        index.add("CartPage.java", PAGE);
+        index.add("CartSteps.java", STEPS);
+        index.add("Context.java", CONTEXT);
+        index.link();
+        return index;
+    }
+
+    @Test
+    public void followsCallsThroughVariablesAndChains() {
+        Set<String> reached = index().reachableFrom("CartSteps#the_cart_shows");
+
+        Assert.assertTrue(reached.containsAll(Arrays.asList("Context#getCartPage", "CartPage#count", "CartPage#text")),
+            "Reached " + reached);
+        Assert.assertFalse(reached.contains("CartPage#open"));
+    }
+
+    @Test
+    public void mapsChangedLinesToMethods() {
+        SourceIndex index = index();
+
+        Assert.assertEquals(index.methodsAt("CartPage.java", new TreeSet<>(Arrays.asList(5, 9))),
+            new TreeSet<>(Arrays.asList("CartPage#count", "CartPage#text")));
+        Assert.assertEquals(index.methodsAt("CartPage.java", Collections.singleton(2)), Collections.singleton("CartPage#*"));
+        Assert.assertEquals(index.firstChangeReachedFrom("CartSteps#the_cart_shows", Collections.singleton("CartPage#*")),
+            "CartPage#*");
+        Assert.assertNull(index.firstChangeReachedFrom("CartSteps#the_cart_shows", Collections.singleton("CartPage#open")));
+    }
+
+    @Test
+    public void followsCallbacksIntoClassesHandedToALibrary() {
+        SourceIndex index = new SourceIndex();
+        index.add("Timer.java", String.join("\n",
+            "public class Timer implements WebDriverListener {",
+            "    public void beforeAnyCall(Object target) {",
+            "        record(target);",
+            "    }",
+            "",
+            "    private void record(Object target) {",
+            "    }",
+            "}"));
+        index.add("Factory.java", String.join("\n",
+            "public class Factory {",
+            "    public WebDriver create(WebDriver driver) {",
+            "        return new EventFiringDecorator<WebDriver>(new Timer()).decorate(driver);",
+            "    }",
+            "}"));
+        index.link();
+
+        Set<String> reached = index.reachableFrom("Factory#create");
+        Assert.assertTrue(reached.containsAll(Arrays.asList("Timer#*", "Timer#beforeAnyCall", "Timer#record")),
+            "Reached " + reached);
+    }
+
+    @Test
+    public void readsChangedLinesFromADiff() {
+        String diff = String.join("\n",
+            "diff --git a/src/Page.java b/src/Page.java",
+            "--- a/src/Page.java",
+            "+++ b/src/Page.java",
+            "@@ -10,2 +10,3 @@ class Page {",
+            "@@ -40 +41,0 @@ class Page {",
+            "diff --git a/src/Old.java b/src/Old.java",
+            "--- a/src/Old.java",
+            "+++ /dev/null",
+            "@@ -1,20 +0,0 @@");
+        Map<String, Set<Integer>> changes = GitDiff.parse(diff);
+
+        Assert.assertEquals(changes.get("src/Page.java"), new TreeSet<>(Arrays.asList(10, 11, 12, 41, 42)));
+        Assert.assertTrue(changes.get("src/Old.java").isEmpty(), "A deleted file changes as a whole");
+    }
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class StreamingReportTest {
+
+    private static String line(long finishedAt, int line, String status) {
+        return "{\"finishedAt\":" + finishedAt + ",\"uri\":\"file:features/cart.feature\",\"line\":" + line
+            + ",\"feature\":\"Cart\",\"scenario\":\"Scenario " + line + "\",\"status\":\"" + status
+            + "\",\"durationMs\":100}\n";
+    }
+
+    @Test
+    public void mergesStreamsInFinishOrderAndKeepsTheLatestResult() throws IOException {
+        Path directory = Files.createTempDirectory("stream");
+        try {
+            Path first = Files.writeString(directory.resolve("scenarios-1.ndjson"),
+                line(1000, 3, "FAILED") + line(3000, 3, "PASSED"));
+            Path second = Files.writeString(directory.resolve("scenarios-2.ndjson"),
+                line(2000, 7, "PASSED") + line(4000, 9, "FAILED"));
+            StreamingReport summary = new StreamingReport();
+
+            long written = summary.merge(Arrays.asList(first, second), directory.resolve("scenarios.ndjson"));
+
+            List<String> merged = Files.readAllLines(directory.resolve("scenarios.ndjson"));
+            Assert.assertEquals(written, 4);
+            Assert.assertEquals(merged.stream().map(json -> json.substring(14, 18)).toArray(),
+                new Object[]{"1000", "2000", "3000", "4000"});
+            Map<String, Integer> counts = new TreeMap<>();
+            counts.put("FAILED", 1);
+            counts.put("PASSED", 2);
+            Assert.assertEquals(summary.getCounts(), counts, "The rerun of line 3 replaces its failure");
+            Assert.assertEquals(summary.getScenarioCount(), 3);
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+
+    @Test
+    public void followsOnlyCompleteLines() throws IOException {
+        Path directory = Files.createTempDirectory("stream");
+        Path file = directory.resolve("scenarios-1.ndjson");
+        try {
+            String complete = line(1000, 3, "PASSED");
+            String next = line(2000, 7, "FAILED");
+            Files.writeString(file, complete + next.substring(0, 20));
+            StreamingReport summary = new StreamingReport();
+
+            summary.follow(file);
+            Assert.assertEquals(summary.getScenarioCount(), 1);
+
+            Files.write(file, next.substring(20).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            summary.follow(file);
+            Assert.assertEquals(summary.getScenarioCount(), 2);
+            Assert.assertEquals(summary.getCounts().get("FAILED"), Integer.valueOf(1));
+        } finally {
+            TempFiles.delete(directory);
+        }
+    }
+}
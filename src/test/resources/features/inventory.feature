@@ -4,8 +4,7 @@ Feature: Inventory Page Functionality
   So that I can view and manage products
 
   Background:
-    Given I am on the login page
-    When I login with valid credentials
+    Given I am logged in as standard_user
     Then I should be logged in successfully
 
   @smoke @inventory
@@ -29,6 +28,13 @@ Feature: Inventory Page Functionality
     When I click on the shopping cart
     Then I should be on the cart page
 
+  @regression @inventory
+  Scenario: View shopping cart with items already in it
+    Given my cart contains the backpack and bike light
+    Then the cart should show 2 items
+    When I click on the shopping cart
+    Then I should be on the cart page
+
   @regression @inventory
   Scenario: Logout from inventory page
     When I logout from the application
@@ -4,8 +4,7 @@ Feature: Simple Cart Test
   So that I can verify the cart operations work
 
   Background:
-    Given I am on the login page
-    When I login with valid credentials
+    Given I am logged in as standard_user
     Then I should be logged in successfully
 
   @simple @cart